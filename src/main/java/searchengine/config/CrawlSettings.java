@@ -0,0 +1,51 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "indexing-settings.crawl")
+public class CrawlSettings {
+    private boolean dropQuery;
+    private List<String> ignoredQueryParams = List.of("utm_*", "fbclid", "gclid",
+            "yclid", "_openstat", "sessionid", "sid", "phpsessid", "jsessionid");
+    private List<String> skippedExtensions = List.of("pdf", "doc", "docx", "xls",
+            "xlsx", "ppt", "pptx", "rtf", "odt", "zip", "rar", "7z", "gz", "tar",
+            "jpg", "jpeg", "png", "gif", "bmp", "webp", "svg", "ico", "tif", "tiff",
+            "mp3", "mp4", "avi", "mov", "wmv", "webm", "flv", "exe", "msi", "apk",
+            "dmg", "iso", "css", "js", "json", "xml", "txt", "csv", "woff", "woff2");
+    private List<String> skippedPathPrefixes = List.of("/download");
+    private List<String> allowedContentTypes = List.of("text/html",
+            "application/xhtml+xml");
+    private DataSize maxBodySize = DataSize.ofMegabytes(5);
+    private int maxDepth;
+    private int maxPages;
+    private Duration timeLimit;
+    private boolean useSitemaps = true;
+    private int maxSitemaps = 100;
+
+    @Override
+    public String toString() {
+        return "CrawlSettings{" +
+                "dropQuery=" + dropQuery +
+                ", ignoredQueryParams=" + ignoredQueryParams +
+                ", skippedExtensions=" + skippedExtensions +
+                ", skippedPathPrefixes=" + skippedPathPrefixes +
+                ", allowedContentTypes=" + allowedContentTypes +
+                ", maxBodySize=" + maxBodySize +
+                ", maxDepth=" + maxDepth +
+                ", maxPages=" + maxPages +
+                ", timeLimit=" + timeLimit +
+                ", useSitemaps=" + useSitemaps +
+                ", maxSitemaps=" + maxSitemaps +
+                '}';
+    }
+}
@@ -1,12 +1,12 @@
 package searchengine.config;
 
+import lombok.Getter;
 import lombok.Setter;
-import org.jsoup.Connection;
-import org.jsoup.Jsoup;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
 
+@Getter
 @Setter
 @Component
 @ConfigurationProperties(prefix = "jsoup-settings")
@@ -24,11 +24,4 @@ public class JsoupSession {
                 ", timeOut=" + timeOut +
                 '}';
     }
-
-    public Connection getSession() {
-        return Jsoup.newSession()
-                .userAgent(userAgent)
-                .referrer(referrer)
-                .timeout(timeOut);
-    }
 }
@@ -0,0 +1,61 @@
+package searchengine.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "indexing-settings.pipeline")
+public class PipelineSettings {
+    private StageSettings fetch = new StageSettings(16, 1000, 1);
+    private StageSettings parse = new StageSettings(
+            Runtime.getRuntime().availableProcessors(), 200, 1);
+    private StageSettings persist = new StageSettings(2, 200, 20);
+    private boolean virtualThreads;
+    private int maxRequestsPerSite = 16;
+    private int initialRequestsPerSite = 2;
+    private int maxRetries = 3;
+    private Duration retryBackoff = Duration.ofSeconds(1);
+    private Duration maxRetryBackoff = Duration.ofMinutes(1);
+
+    @Override
+    public String toString() {
+        return "PipelineSettings{" +
+                "fetch=" + fetch +
+                ", parse=" + parse +
+                ", persist=" + persist +
+                ", virtualThreads=" + virtualThreads +
+                ", maxRequestsPerSite=" + maxRequestsPerSite +
+                ", initialRequestsPerSite=" + initialRequestsPerSite +
+                ", maxRetries=" + maxRetries +
+                ", retryBackoff=" + retryBackoff +
+                ", maxRetryBackoff=" + maxRetryBackoff +
+                '}';
+    }
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class StageSettings {
+        private int threads;
+        private int queueCapacity;
+        private int batchSize;
+
+        @Override
+        public String toString() {
+            return "StageSettings{" +
+                    "threads=" + threads +
+                    ", queueCapacity=" + queueCapacity +
+                    ", batchSize=" + batchSize +
+                    '}';
+        }
+    }
+}
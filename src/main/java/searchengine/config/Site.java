@@ -3,17 +3,27 @@ package searchengine.config;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.time.Duration;
+
 @Setter
 @Getter
 public class Site{
     private String url;
     private String name;
+    private int weight = 1;
+    private Integer maxDepth;
+    private Integer maxPages;
+    private Duration timeLimit;
 
     @Override
     public String toString() {
         return "Site{" +
                 "url='" + url + '\'' +
                 ", name='" + name + '\'' +
+                ", weight=" + weight +
+                ", maxDepth=" + maxDepth +
+                ", maxPages=" + maxPages +
+                ", timeLimit=" + timeLimit +
                 '}';
     }
 }
@@ -1,8 +1,10 @@
 package searchengine.controllers;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import searchengine.dto.indexing.*;
 import searchengine.dto.statistics.StatisticsResponse;
 import searchengine.services.IndexingService;
@@ -21,9 +23,16 @@ public class ApiController {
         return ResponseEntity.ok(statisticsService.getStatistics());
     }
 
+    @GetMapping(value = "/statistics/stream",
+            produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter statisticsStream() {
+        return statisticsService.subscribe();
+    }
+
     @GetMapping("/startIndexing")
-    public ResponseEntity<StartIndexingResponse> startIndexing() {
-        return ResponseEntity.ok(indexingService.startIndexing());
+    public ResponseEntity<StartIndexingResponse> startIndexing(
+            @RequestParam(defaultValue = "false") boolean incremental) {
+        return ResponseEntity.ok(indexingService.startIndexing(incremental));
     }
 
     @GetMapping("/stopIndexing")
@@ -31,11 +40,26 @@ public class ApiController {
         return ResponseEntity.ok(indexingService.stopIndexing());
     }
 
+    @GetMapping("/resumeIndexing")
+    public ResponseEntity<StartIndexingResponse> resumeIndexing() {
+        return ResponseEntity.ok(indexingService.resumeIndexing());
+    }
+
     @PostMapping("/indexPage")
     public ResponseEntity<IndexPageResponse> indexPage(@RequestParam String url) {
         return ResponseEntity.ok(indexingService.indexPage(url));
     }
 
+    @GetMapping("/pipelineStatus")
+    public ResponseEntity<PipelineStatusResponse> pipelineStatus() {
+        return ResponseEntity.ok(indexingService.getPipelineStatus());
+    }
+
+    @GetMapping("/indexingJobs")
+    public ResponseEntity<IndexingJobsResponse> indexingJobs() {
+        return ResponseEntity.ok(indexingService.getJobs());
+    }
+
     @GetMapping("/search")
     public ResponseEntity<SearchResponse> search(
             @RequestParam String query, Integer offset,
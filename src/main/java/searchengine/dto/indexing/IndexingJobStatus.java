@@ -0,0 +1,17 @@
+package searchengine.dto.indexing;
+
+import lombok.Data;
+
+import java.util.Date;
+
+@Data
+public class IndexingJobStatus {
+    private long id;
+    private String type;
+    private String url;
+    private String path;
+    private String state;
+    private Date startTime;
+    private Date endTime;
+    private int pendingPages;
+}
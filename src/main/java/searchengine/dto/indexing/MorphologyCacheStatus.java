@@ -0,0 +1,12 @@
+package searchengine.dto.indexing;
+
+import lombok.Data;
+
+@Data
+public class MorphologyCacheStatus {
+    private int size;
+    private int maxSize;
+    private long hits;
+    private long misses;
+    private float hitRate;
+}
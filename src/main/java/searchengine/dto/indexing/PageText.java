@@ -0,0 +1,17 @@
+package searchengine.dto.indexing;
+
+import lombok.Value;
+
+@Value
+public class PageText {
+    int pageId;
+    String path;
+    String siteUrl;
+    String siteName;
+    String title;
+    String text;
+
+    public PageText withTitleAndText(String title, String text) {
+        return new PageText(pageId, path, siteUrl, siteName, title, text);
+    }
+}
@@ -0,0 +1,12 @@
+package searchengine.dto.indexing;
+
+import lombok.Data;
+
+@Data
+public class PipelineSiteStatus {
+    private String url;
+    private int weight;
+    private int requestLimit;
+    private int requestsInFlight;
+    private int pendingPages;
+}
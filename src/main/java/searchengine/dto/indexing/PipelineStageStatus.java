@@ -0,0 +1,12 @@
+package searchengine.dto.indexing;
+
+import lombok.Data;
+
+@Data
+public class PipelineStageStatus {
+    private String name;
+    private int threads;
+    private int activeThreads;
+    private int queueCapacity;
+    private int queueDepth;
+}
@@ -0,0 +1,15 @@
+package searchengine.dto.indexing;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class PipelineStatusResponse {
+    private boolean result;
+    private int sitesInProgress;
+    private int pagesInProgress;
+    private List<PipelineStageStatus> stages;
+    private List<PipelineSiteStatus> sites;
+    private MorphologyCacheStatus morphologyCache;
+}
@@ -39,4 +39,10 @@ public class DefaultAdvice {
         return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(SearchRangeIsWrong.class)
+    public ResponseEntity<ErrorResponse> handleException(SearchRangeIsWrong ex) {
+        ErrorResponse response = new ErrorResponse(ex.getMessage());
+        return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+    }
+
 }
@@ -0,0 +1,7 @@
+package searchengine.exceptions;
+
+public class SearchRangeIsWrong extends RuntimeException{
+    public SearchRangeIsWrong(String message) {
+        super(message);
+    }
+}
@@ -22,6 +22,9 @@ public class IndexEntity {
     @Column(name = "`rank`", nullable = false)
     private int rank;
 
+    @Column(columnDefinition = "BLOB")
+    private byte[] positions;
+
     @Override
     public String toString() {
         return "IndexEntity{" +
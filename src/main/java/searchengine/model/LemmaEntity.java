@@ -10,7 +10,9 @@ import java.util.Set;
 @Setter
 @Getter
 @Entity
-@Table(name = "lemma")
+@Table(name = "lemma", uniqueConstraints =
+        @UniqueConstraint(name = "uk_lemma_site_lemma",
+                columnNames = {"site_id", "lemma"}))
 public class LemmaEntity implements Comparable {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -20,7 +22,7 @@ public class LemmaEntity implements Comparable {
     @JoinColumn(name = "site_id")
     private SiteEntity siteEntity;
 
-    @Column(columnDefinition = "VARCHAR(255) not null")
+    @Column(columnDefinition = "VARCHAR(255) COLLATE utf8mb4_bin not null")
     private String lemma;
 
     @Column(nullable = false)
@@ -32,6 +32,15 @@ public class PageEntity{
     @Column(columnDefinition = "MEDIUMTEXT not null")
     private String content;
 
+    @Column(columnDefinition = "VARCHAR(255)")
+    private String etag;
+
+    @Column(name = "last_modified", columnDefinition = "VARCHAR(64)")
+    private String lastModified;
+
+    @Column(name = "content_hash", columnDefinition = "BINARY(32)")
+    private byte[] contentHash;
+
     @OneToMany(cascade = {CascadeType.REMOVE}, fetch = FetchType.LAZY, mappedBy = "pageEntity")
     private Set<IndexEntity> indexEntitySet;
 
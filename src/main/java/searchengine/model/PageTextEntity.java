@@ -0,0 +1,38 @@
+package searchengine.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+@Setter
+@Getter
+@Entity
+@Table(name = "page_text")
+public class PageTextEntity {
+    @Id
+    @Column(name = "page_id")
+    private int pageId;
+
+    @MapsId
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "page_id")
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private PageEntity pageEntity;
+
+    @Column(columnDefinition = "TEXT not null")
+    private String title;
+
+    @Convert(converter = CompressedTextConverter.class)
+    @Column(columnDefinition = "MEDIUMBLOB not null")
+    private String text;
+
+    @Override
+    public String toString() {
+        return "PageTextEntity{" +
+                "pageId=" + pageId +
+                ", title='" + title + '\'' +
+                '}';
+    }
+}
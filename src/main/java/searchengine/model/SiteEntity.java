@@ -34,6 +34,18 @@ public class SiteEntity {
     @Column(columnDefinition = "VARCHAR(255) not null")
     private String name;
 
+    @Column(columnDefinition = "BOOLEAN not null default true")
+    private boolean active = true;
+
+    @Column(name = "page_count")
+    private Integer pageCount;
+
+    @Column(name = "lemma_count")
+    private Integer lemmaCount;
+
+    @Column(name = "index_count")
+    private Integer indexCount;
+
     @OneToMany(cascade = {CascadeType.REMOVE}, fetch = FetchType.LAZY, mappedBy="siteEntity")
     private Set<PageEntity> pageEntitySet;
 
@@ -49,6 +61,7 @@ public class SiteEntity {
                 ", lastError='" + lastError + '\'' +
                 ", url='" + url + '\'' +
                 ", name='" + name + '\'' +
+                ", active=" + active +
                 '}';
     }
 }
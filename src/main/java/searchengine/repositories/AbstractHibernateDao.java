@@ -50,6 +50,11 @@ public abstract class AbstractHibernateDao<T> {
                         } else {
                             throw new RuntimeException(hex);
                         }
+                    } catch (RuntimeException e) {
+                        if (tx != null && tx.isActive()) {
+                            tx.rollback();
+                        }
+                        throw e;
                     } finally {
                         session.close();
                     }
@@ -71,14 +76,20 @@ public abstract class AbstractHibernateDao<T> {
                     Transaction tx = session.getTransaction();
                     try {
                         tx.begin();
-                        result = action.apply( session );
+                        T applied = action.apply( session );
                         tx.commit();
+                        result = applied;
                     } catch (HibernateException hex) {
                         if (tx != null) {
                             tx.rollback();
                         } else {
                             throw new RuntimeException(hex);
                         }
+                    } catch (RuntimeException e) {
+                        if (tx != null && tx.isActive()) {
+                            tx.rollback();
+                        }
+                        throw e;
                     } finally {
                         session.close();
                     }
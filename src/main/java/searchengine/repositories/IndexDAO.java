@@ -5,6 +5,7 @@ import org.springframework.stereotype.Repository;
 import searchengine.model.IndexEntity;
 import searchengine.model.PageEntity;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.function.Consumer;
 
@@ -16,11 +17,37 @@ public class IndexDAO extends AbstractHibernateDao {
         settClass(IndexEntity.class);
     }
 
-    public void multiInsert(StringBuilder insertQuery) {
-        Consumer<Session> save = session -> session.createNativeQuery(
-                "Insert into `index`(`rank`, lemma_id, page_id) values "
+    public void multiInsert(Session session, StringBuilder insertQuery) {
+        session.createNativeQuery(
+                "Insert into `index`(`rank`, lemma_id, page_id, positions) values "
                         + insertQuery).executeUpdate();
-        inSessionWithTransaction(save);
+    }
+
+    public void forEachIndex(Consumer<Object[]> action) {
+        Consumer<Session> scroll = session -> {
+            try (ScrollableResults rows = session.createNativeQuery(
+                    "select lemma_id, page_id, `rank` from `index`" +
+                            " order by lemma_id, page_id")
+                    .setFetchSize(Integer.MIN_VALUE)
+                    .scroll(ScrollMode.FORWARD_ONLY)) {
+                while (rows.next()) {
+                    action.accept((Object[]) rows.get());
+                }
+            }
+        };
+        inSession(scroll);
+    }
+
+    public List<Object[]> findPositions(Session session,
+                                        Collection<Integer> pageIds,
+                                        Collection<Integer> lemmaIds) {
+        return session.createNativeQuery(
+                        "select page_id, lemma_id, positions from `index`" +
+                                " where page_id in (:pageIds)" +
+                                " and lemma_id in (:lemmaIds)")
+                .setParameter("pageIds", pageIds)
+                .setParameter("lemmaIds", lemmaIds)
+                .list();
     }
 
     public List<IndexEntity> findIndexesByPage(Session session,
@@ -1,38 +1,192 @@
 package searchengine.repositories;
 
+import jakarta.annotation.PostConstruct;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.MarkerManager;
 import org.hibernate.*;
+import org.hibernate.query.NativeQuery;
 import org.springframework.stereotype.Repository;
 import searchengine.model.LemmaEntity;
+import searchengine.model.SiteEntity;
 
-import java.util.List;
+import java.util.*;
+import java.util.function.Consumer;
 
 @Repository
 public class LemmaDAO extends AbstractHibernateDao{
 
+    private static final int BATCH_SIZE = 1000;
+    private static final String UNIQUE_KEY = "uk_lemma_site_lemma";
+
+    private final Logger logger = LogManager.getLogger(LemmaDAO.class);
+    private final Marker historyMarker = MarkerManager.getMarker("history");
+
     public LemmaDAO() {
         super();
         settClass(LemmaEntity.class);
     }
 
-    public void saveOrUpdateWithIncrementOrDecrement(Session session,
-                                                     LemmaEntity lemmaEntity,
-                                                     int value) {
+    @PostConstruct
+    public void migrateSchema() {
+        Consumer<Session> migrate = session -> {
+            String collation = (String) session.createNativeQuery(
+                            "select collation_name from information_schema.columns" +
+                                    " where table_schema = database()" +
+                                    " and table_name = 'lemma' and column_name = 'lemma'")
+                    .uniqueResult();
+            boolean hasUniqueKey = !session.createNativeQuery(
+                            "select index_name from information_schema.statistics" +
+                                    " where table_schema = database() and table_name = 'lemma'" +
+                                    " and non_unique = 0 group by index_name" +
+                                    " having group_concat(column_name order by seq_in_index)" +
+                                    " = 'site_id,lemma'")
+                    .list().isEmpty();
+            if (collation == null || (hasUniqueKey && collation.equals("utf8mb4_bin"))) {
+                return;
+            }
+
+            logger.info(historyMarker, "Обновление схемы таблицы lemma:" +
+                    " сравнение {}, уникальный ключ {}", collation, hasUniqueKey);
+            int removedLemmas = hasUniqueKey ? 0 : removeDuplicates(session);
+            executeInTransaction(session, "alter table lemma modify lemma" +
+                    " VARCHAR(255) COLLATE utf8mb4_bin not null");
+            if (!hasUniqueKey) {
+                executeInTransaction(session, "alter table lemma add constraint " +
+                        UNIQUE_KEY + " unique (site_id, lemma)");
+            }
+            logger.info(historyMarker, "Схема таблицы lemma обновлена," +
+                    " удалено дублей лемм: {}", removedLemmas);
+        };
+        inSession(migrate);
+    }
+
+    private int removeDuplicates(Session session) {
+        Map<Integer, List<Integer>> duplicateIdsByKeptId = new HashMap<>();
+        List<Object[]> rows = session.createNativeQuery(
+                        "select l.id, k.kept_id from lemma l join" +
+                                " (select site_id, binary lemma lemma_key, min(id) kept_id" +
+                                " from lemma group by site_id, binary lemma" +
+                                " having count(*) > 1) k" +
+                                " on l.site_id = k.site_id and binary l.lemma = k.lemma_key" +
+                                " where l.id <> k.kept_id")
+                .list();
+        rows.forEach(row -> duplicateIdsByKeptId.computeIfAbsent(
+                        ((Number) row[1]).intValue(), id -> new ArrayList<>()).
+                add(((Number) row[0]).intValue()));
+
+        duplicateIdsByKeptId.forEach((keptId, duplicateIds) -> {
+            Transaction tx = session.beginTransaction();
+            session.createNativeQuery("update `index` set lemma_id = :keptId" +
+                            " where lemma_id in (:ids)")
+                    .setParameter("keptId", keptId)
+                    .setParameterList("ids", duplicateIds)
+                    .executeUpdate();
+            session.createNativeQuery("delete i1 from `index` i1 join `index` i2" +
+                            " on i1.page_id = i2.page_id and i1.lemma_id = i2.lemma_id" +
+                            " and i1.id > i2.id where i1.lemma_id = :keptId")
+                    .setParameter("keptId", keptId)
+                    .executeUpdate();
+            session.createNativeQuery("delete from lemma where id in (:ids)")
+                    .setParameterList("ids", duplicateIds)
+                    .executeUpdate();
+            session.createNativeQuery("update lemma set frequency =" +
+                            " (select count(distinct page_id) from `index`" +
+                            " where lemma_id = :keptId) where id = :keptId")
+                    .setParameter("keptId", keptId)
+                    .executeUpdate();
+            tx.commit();
+        });
+        return rows.size();
+    }
+
+    private void executeInTransaction(Session session, String statement) {
+        Transaction tx = session.beginTransaction();
+        session.createNativeQuery(statement).executeUpdate();
+        tx.commit();
+    }
+
+    public HashMap<String, Integer> saveAndGetIds(Session session,
+                                                  SiteEntity siteEntity,
+                                                  Collection<String> lemmas) {
+
+        List<String> sortedLemmas = lemmas.stream().sorted().toList();
+        for (int from = 0; from < sortedLemmas.size(); from += BATCH_SIZE) {
+            List<String> batch = sortedLemmas.subList(from,
+                    Math.min(from + BATCH_SIZE, sortedLemmas.size()));
 
-        LemmaEntity foundEntity = (LemmaEntity) findOneByTwoParameters(session,
-                "lemma", lemmaEntity.getLemma(),
-                "siteEntity", lemmaEntity.getSiteEntity());
-        if (foundEntity == null){
-            session.save(lemmaEntity);
-        } else {
-            lemmaEntity.setFrequency(foundEntity.getFrequency() + value);
-            lemmaEntity.setId(foundEntity.getId());
-            session.merge(lemmaEntity);
+            StringBuilder values = new StringBuilder();
+            for (int i = 0; i < batch.size(); i++) {
+                values.append(i == 0 ? "" : ",").
+                        append("(:siteId, :lemma").append(i).append(", 0)");
+            }
+            NativeQuery<?> insert = session.createNativeQuery(
+                    "insert into lemma(site_id, lemma, frequency) values " + values +
+                            " on duplicate key update id = id");
+            insert.setParameter("siteId", siteEntity.getId());
+            for (int i = 0; i < batch.size(); i++) {
+                insert.setParameter("lemma" + i, batch.get(i));
+            }
+            insert.executeUpdate();
         }
+
+        HashMap<String, Integer> lemmaIds = new HashMap<>(lemmas.size());
+        List<Object[]> rows = session.createNativeQuery(
+                        "select id, lemma from lemma" +
+                                " where site_id = :siteId and lemma in (:lemmas)")
+                .setParameter("siteId", siteEntity.getId())
+                .setParameterList("lemmas", sortedLemmas)
+                .list();
+        rows.forEach(row -> lemmaIds.put((String) row[1], ((Number) row[0]).intValue()));
+        if (lemmaIds.size() != sortedLemmas.size()) {
+            throw new IllegalStateException("Не найдены идентификаторы лемм сайта " +
+                    siteEntity.getUrl() + ": " + sortedLemmas.stream().
+                    filter(lemma -> !lemmaIds.containsKey(lemma)).toList());
+        }
+        return lemmaIds;
     }
 
-    public List<LemmaEntity> findLemmasByNormalForm(Session session,
-                                                    String normalForm) {
+    public void addToFrequencies(Session session, int value,
+                                 Collection<Integer> lemmaIds) {
+        session.createNativeQuery(
+                        "update lemma set frequency = frequency + :value" +
+                                " where id in (:ids)")
+                .setParameter("value", value)
+                .setParameterList("ids", lemmaIds)
+                .executeUpdate();
+    }
+
+    public void recomputeFrequencies(Session session, int siteId) {
+        session.createNativeQuery(
+                        "update lemma l left join (select i.lemma_id, count(*) c" +
+                                " from `index` i join page p on p.id = i.page_id" +
+                                " where p.site_id = :siteId group by i.lemma_id) f" +
+                                " on f.lemma_id = l.id" +
+                                " set l.frequency = coalesce(f.c, 0)" +
+                                " where l.site_id = :siteId")
+                .setParameter("siteId", siteId)
+                .executeUpdate();
+    }
+
+    public void deleteUnused(Session session, Collection<Integer> lemmaIds) {
+        session.createNativeQuery(
+                        "delete from lemma where id in (:ids) and frequency < 1")
+                .setParameterList("ids", lemmaIds)
+                .executeUpdate();
+    }
 
-        return  findByParameter(session,"lemma", normalForm, Integer.MAX_VALUE );
+    public void forEachLemma(Consumer<Object[]> action) {
+        Consumer<Session> scroll = session -> {
+            try (ScrollableResults rows = session.createNativeQuery(
+                    "select id, site_id, lemma from lemma")
+                    .setFetchSize(Integer.MIN_VALUE)
+                    .scroll(ScrollMode.FORWARD_ONLY)) {
+                while (rows.next()) {
+                    action.accept((Object[]) rows.get());
+                }
+            }
+        };
+        inSession(scroll);
     }
 }
@@ -1,11 +1,12 @@
 package searchengine.repositories;
 import org.hibernate.*;
 
+import org.hibernate.query.SelectionQuery;
 import org.springframework.stereotype.Repository;
 import searchengine.model.PageEntity;
 import searchengine.model.SiteEntity;
 
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.List;
 import java.util.function.Function;
 
@@ -28,26 +29,73 @@ public class PageDAO extends AbstractHibernateDao {
     }
 
     public int save(Session session, PageEntity pageEntity) {
-        return findByTwoParameters(session,
-                "path", pageEntity.getPath(),
-                "siteEntity", pageEntity.getSiteEntity(), 1).
-                get(0) == null ?
-                (int) session.save(pageEntity) : 0;
+        return (int) session.save(pageEntity);
     }
 
-    public HashMap<String, Boolean> containsPagesByPathAndSite(
-            List<String> pathList , SiteEntity siteEntity) {
+    public List<Object[]> findPageValidatorsBySite(SiteEntity siteEntity) {
+        Function<Session, List<Object[]>> find = session -> session.
+                createSelectionQuery("select p.id, p.path, p.etag, p.lastModified," +
+                        " p.contentHash from PageEntity p" +
+                        " where p.siteEntity = :siteEntity", Object[].class).
+                setParameter("siteEntity", siteEntity).
+                list();
+        return (List<Object[]>) fromSession(find);
+    }
 
-        Function<Session, HashMap<String, Boolean>> contains = session -> {
-            HashMap<String, Boolean> map = new HashMap<>();
+    public void updateValidators(Session session, int id,
+                                 String etag, String lastModified) {
+        session.createMutationQuery("update PageEntity p" +
+                        " set p.etag = :etag, p.lastModified = :lastModified" +
+                        " where p.id = :id")
+                .setParameter("etag", etag)
+                .setParameter("lastModified", lastModified)
+                .setParameter("id", id)
+                .executeUpdate();
+    }
 
-            pathList.forEach(path -> map.put(path,
-                    findOneByTwoParameters(session, "path", path,
-                            "siteEntity", siteEntity) != null));
-            return map;
+    public List<Object[]> findPagesSavedAfter(SiteEntity siteEntity, int pageId,
+                                              Collection<String> paths) {
+        Function<Session, List<Object[]>> find = session -> {
+            SelectionQuery<Object[]> query = session.createSelectionQuery(
+                            "select p.path, p.content from PageEntity p" +
+                            " where p.siteEntity = :siteEntity and (p.id > :pageId" +
+                            (paths.isEmpty() ? ")" : " or p.path in :paths)"),
+                            Object[].class).
+                    setParameter("siteEntity", siteEntity).
+                    setParameter("pageId", pageId);
+            if (!paths.isEmpty()) {
+                query.setParameterList("paths", paths);
+            }
+            return query.list();
         };
+        return (List<Object[]>) fromSession(find);
+    }
+
+    public List<String> findPathsBySite(SiteEntity siteEntity) {
+        Function<Session, List<String>> find = session -> session.
+                createSelectionQuery("select p.path from PageEntity p" +
+                        " where p.siteEntity = :siteEntity", String.class).
+                setParameter("siteEntity", siteEntity).
+                list();
+        return (List<String>) fromSession(find);
+    }
+
+    public List<String> findErrorPathsBySite(SiteEntity siteEntity) {
+        Function<Session, List<String>> find = session -> session.
+                createSelectionQuery("select p.path from PageEntity p" +
+                        " where p.siteEntity = :siteEntity and p.code >= 400", String.class).
+                setParameter("siteEntity", siteEntity).
+                list();
+        return (List<String>) fromSession(find);
+    }
 
-        return (HashMap<String, Boolean>) fromSession(contains);
+    public long countBySite(SiteEntity siteEntity) {
+        Function<Session, Long> count = session -> session.
+                createSelectionQuery("select count(p) from PageEntity p" +
+                        " where p.siteEntity = :siteEntity", Long.class).
+                setParameter("siteEntity", siteEntity).
+                getSingleResult();
+        return (long) fromSession(count);
     }
 
 }
\ No newline at end of file
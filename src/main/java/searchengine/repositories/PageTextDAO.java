@@ -0,0 +1,40 @@
+package searchengine.repositories;
+
+import org.hibernate.*;
+import org.springframework.stereotype.Repository;
+import searchengine.dto.indexing.PageText;
+import searchengine.model.PageEntity;
+import searchengine.model.PageTextEntity;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public class PageTextDAO extends AbstractHibernateDao {
+
+    public PageTextDAO() {
+        super();
+        settClass(PageTextEntity.class);
+    }
+
+    public void save(Session session, PageEntity pageEntity,
+                     String title, String text) {
+        PageTextEntity pageTextEntity = new PageTextEntity();
+        pageTextEntity.setPageEntity(pageEntity);
+        pageTextEntity.setTitle(title);
+        pageTextEntity.setText(text);
+        session.persist(pageTextEntity);
+    }
+
+    public List<PageText> findPageTexts(Session session,
+                                        Collection<Integer> pageIds) {
+        return session.createSelectionQuery(
+                        "select new searchengine.dto.indexing.PageText(" +
+                                "p.id, p.path, s.url, s.name, t.title, t.text)" +
+                                " from PageEntity p join p.siteEntity s" +
+                                " left join PageTextEntity t on t.pageEntity = p" +
+                                " where p.id in :ids", PageText.class)
+                .setParameter("ids", pageIds)
+                .list();
+    }
+}
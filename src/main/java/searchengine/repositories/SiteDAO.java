@@ -3,10 +3,14 @@ package searchengine.repositories;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.hibernate.*;
+import org.hibernate.query.SelectionQuery;
 import org.springframework.stereotype.Repository;
 import searchengine.model.SiteEntity;
 import searchengine.model.StatusType;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 
@@ -48,6 +52,82 @@ public class SiteDAO extends AbstractHibernateDao {
     }
 
 
+    public SiteEntity activate(SiteEntity siteEntity) {
+        Function<Session, SiteEntity> activate = session -> {
+            session.createMutationQuery("update SiteEntity s set s.active = false" +
+                            " where s.url = :url and s.id <> :id")
+                    .setParameter("url", siteEntity.getUrl())
+                    .setParameter("id", siteEntity.getId())
+                    .executeUpdate();
+            siteEntity.setActive(true);
+            return session.merge(siteEntity);
+        };
+        try {
+            return (SiteEntity) fromSessionWithTransaction(activate);
+        } catch (RuntimeException e) {
+            logger.error("При активации сайта {}" +
+                    " возникли ошибки: {}", siteEntity, e);
+            return null;
+        }
+    }
+
+    public void deleteGeneration(int siteId) {
+        Consumer<Session> delete = session -> {
+            session.createNativeQuery("delete i from `index` i" +
+                            " join page p on p.id = i.page_id where p.site_id = :id")
+                    .setParameter("id", siteId).executeUpdate();
+            session.createNativeQuery("delete t from page_text t" +
+                            " join page p on p.id = t.page_id where p.site_id = :id")
+                    .setParameter("id", siteId).executeUpdate();
+            session.createNativeQuery("delete from page where site_id = :id")
+                    .setParameter("id", siteId).executeUpdate();
+            session.createNativeQuery("delete from lemma where site_id = :id")
+                    .setParameter("id", siteId).executeUpdate();
+            session.createNativeQuery("delete from site where id = :id")
+                    .setParameter("id", siteId).executeUpdate();
+        };
+        inSessionWithTransaction(delete);
+    }
+
+    public List<SiteEntity> findCurrentSites(Session session) {
+        return session.createSelectionQuery("from SiteEntity s" +
+                        " where s.id = (select max(g.id) from SiteEntity g" +
+                        " where g.url = s.url)", SiteEntity.class)
+                .list();
+    }
+
+    public List<Object[]> findPageCounts() {
+        Function<Session, List<Object[]>> find = session -> session
+                .createSelectionQuery("select s.id, case when s.status = :indexed" +
+                        " and s.pageCount is not null then s.pageCount" +
+                        " else (select count(p) from PageEntity p where p.siteEntity = s)" +
+                        " end from SiteEntity s", Object[].class)
+                .setParameter("indexed", StatusType.INDEXED)
+                .list();
+        return (List<Object[]>) fromSession(find);
+    }
+
+    public List<Integer> findInactiveSiteIds(String url) {
+        Function<Session, List<Integer>> find = session -> {
+            SelectionQuery<Integer> query = session
+                    .createSelectionQuery("select s.id from SiteEntity s" +
+                            " where s.active = false" +
+                            (url == null ? "" : " and s.url = :url"), Integer.class);
+            if (url != null) {
+                query.setParameter("url", url);
+            }
+            return query.list();
+        };
+        return (List<Integer>) fromSession(find);
+    }
+
+    public void updateStatusTime(Session session, Collection<Integer> siteIds) {
+        session.createNativeQuery(
+                        "update site set status_time = now() where id in (:ids)")
+                .setParameterList("ids", siteIds)
+                .executeUpdate();
+    }
+
     public boolean containsByStatus(StatusType statusType) {
         Function<Session, SiteEntity> find = session ->
                 (SiteEntity) findByParameter(session, "status",
@@ -63,11 +143,10 @@ public class SiteDAO extends AbstractHibernateDao {
     }
 
     public SiteEntity findSiteByUrl(Session session, String url) {
-        return (SiteEntity) findByParameter(session, "url",
-                url,1).get(0);
-    }
-
-    public SiteEntity findById(Session session, SiteEntity siteEntity) {
-        return (SiteEntity) findOneById(session, siteEntity.getId());
+        return session.createSelectionQuery("from SiteEntity s" +
+                        " where s.url = :url and s.active = true", SiteEntity.class)
+                .setParameter("url", url)
+                .setMaxResults(1)
+                .uniqueResult();
     }
 }
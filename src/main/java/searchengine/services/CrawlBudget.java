@@ -0,0 +1,40 @@
+package searchengine.services;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+@Getter
+class CrawlBudget {
+    static final CrawlBudget UNLIMITED = new CrawlBudget(0, 0, null);
+
+    private final int maxDepth;
+    private final int maxPages;
+    private final Duration timeLimit;
+    private final long deadline;
+
+    CrawlBudget(int maxDepth, int maxPages, Duration timeLimit) {
+        this.maxDepth = Math.max(0, maxDepth);
+        this.maxPages = Math.max(0, maxPages);
+        this.timeLimit = timeLimit == null || timeLimit.isZero() || timeLimit.isNegative() ?
+                null : timeLimit;
+        this.deadline = this.timeLimit == null ? 0 : System.nanoTime() + this.timeLimit.toNanos();
+    }
+
+    boolean isPageLimitReached(int pages) {
+        return maxPages > 0 && pages >= maxPages;
+    }
+
+    boolean isTimeOver() {
+        return timeLimit != null && System.nanoTime() - deadline >= 0;
+    }
+
+    @Override
+    public String toString() {
+        return "CrawlBudget{" +
+                "maxDepth=" + maxDepth +
+                ", maxPages=" + maxPages +
+                ", timeLimit=" + timeLimit +
+                '}';
+    }
+}
@@ -0,0 +1,102 @@
+package searchengine.services;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class CrawlCheckpoint {
+
+    private final Logger logger = LogManager.getLogger(CrawlCheckpoint.class);
+
+    private final IndexingPipeline indexingPipeline;
+    private final ObjectMapper objectMapper;
+    private final Path file;
+
+    private final Map<String, SiteCheckpoint> checkpoints = new ConcurrentHashMap<>();
+
+    public CrawlCheckpoint(IndexingPipeline indexingPipeline, ObjectMapper objectMapper,
+                           @Value("${indexing-settings.checkpoint-file:crawl-checkpoint.json}")
+                           String file) {
+        this.indexingPipeline = indexingPipeline;
+        this.objectMapper = objectMapper;
+        this.file = Path.of(file);
+    }
+
+    @PostConstruct
+    public void load() {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try {
+            List<SiteCheckpoint> savedCheckpoints = objectMapper.readValue(file.toFile(),
+                    new TypeReference<List<SiteCheckpoint>>() {});
+            savedCheckpoints.forEach(checkpoint ->
+                    checkpoints.put(checkpoint.getUrl(), checkpoint));
+        } catch (IOException e) {
+            logger.error("Не удалось прочитать контрольную точку индексации {}: {}",
+                    file, e);
+        }
+    }
+
+    public Collection<SiteCheckpoint> getCheckpoints() {
+        return List.copyOf(checkpoints.values());
+    }
+
+    public void remove(String url) {
+        if (checkpoints.remove(url) != null) {
+            write();
+        }
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${indexing-settings.checkpoint-delay:10000}")
+    public synchronized void save() {
+        boolean changed = false;
+        for (SiteCrawl siteCrawl : indexingPipeline.getCrawls()) {
+            if (!siteCrawl.isFollowLinks() || siteCrawl.isCancelled()) {
+                continue;
+            }
+            String url = siteCrawl.getSiteEntity().getUrl();
+            if (siteCrawl.isFinished() && !siteCrawl.isPaused()) {
+                changed |= checkpoints.remove(url) != null;
+            } else {
+                checkpoints.put(url, siteCrawl.checkpoint());
+                changed = true;
+            }
+        }
+        if (changed) {
+            write();
+        }
+    }
+
+    private synchronized void write() {
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path tempFile = Files.createTempFile(parent, "checkpoint", ".tmp");
+            objectMapper.writeValue(tempFile.toFile(), new ArrayList<>(checkpoints.values()));
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.error("Не удалось сохранить контрольную точку индексации {}: {}",
+                    file, e);
+        }
+    }
+}
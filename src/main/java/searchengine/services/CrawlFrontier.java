@@ -0,0 +1,110 @@
+package searchengine.services;
+
+import lombok.Getter;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class CrawlFrontier {
+    private final int maxDepth;
+    private final UrlCanonicalizer urlCanonicalizer;
+    private final Set<String> visitedPaths = ConcurrentHashMap.newKeySet();
+    private final Map<String, QueuedPath> queuedPaths = new HashMap<>();
+    private final NavigableSet<QueuedPath> queue = new TreeSet<>();
+    private long sequence;
+
+    public CrawlFrontier(int maxDepth, UrlCanonicalizer urlCanonicalizer) {
+        this.maxDepth = maxDepth;
+        this.urlCanonicalizer = urlCanonicalizer;
+    }
+
+    public void seed(Collection<String> paths) {
+        paths.forEach(path -> visitedPaths.add(canonicalize(path)));
+    }
+
+    public boolean markVisited(String path) {
+        return visitedPaths.add(canonicalize(path));
+    }
+
+    public synchronized boolean offer(String path, int depth) {
+        String normalizedPath = canonicalize(path);
+        QueuedPath queuedPath = queuedPaths.get(normalizedPath);
+        if (queuedPath != null) {
+            queue.remove(queuedPath);
+            queuedPath.depth = Math.min(queuedPath.depth, depth);
+            queuedPath.inLinks++;
+            queue.add(queuedPath);
+            return false;
+        }
+        if ((maxDepth > 0 && depth > maxDepth) || !visitedPaths.add(normalizedPath)) {
+            return false;
+        }
+        queuedPath = new QueuedPath(normalizedPath, depth, sequence++);
+        queuedPaths.put(normalizedPath, queuedPath);
+        queue.add(queuedPath);
+        return true;
+    }
+
+    public synchronized boolean remove(String path) {
+        QueuedPath queuedPath = queuedPaths.remove(canonicalize(path));
+        if (queuedPath == null) {
+            return false;
+        }
+        queue.remove(queuedPath);
+        return true;
+    }
+
+    public synchronized QueuedPath poll() {
+        QueuedPath queuedPath = queue.pollFirst();
+        if (queuedPath != null) {
+            queuedPaths.remove(queuedPath.path);
+        }
+        return queuedPath;
+    }
+
+    public synchronized Map<String, Integer> getQueuedPaths() {
+        Map<String, Integer> paths = new LinkedHashMap<>();
+        queue.forEach(queuedPath -> paths.put(queuedPath.path, queuedPath.depth));
+        return paths;
+    }
+
+    public synchronized boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    public synchronized int clear() {
+        int size = queue.size();
+        queue.clear();
+        queuedPaths.clear();
+        return size;
+    }
+
+    public String canonicalize(String path) {
+        return Objects.requireNonNullElse(urlCanonicalizer.canonicalizePath(path), path);
+    }
+
+    @Getter
+    public static class QueuedPath implements Comparable<QueuedPath> {
+        private final String path;
+        private final long sequence;
+        private int depth;
+        private int inLinks = 1;
+
+        private QueuedPath(String path, int depth, long sequence) {
+            this.path = path;
+            this.depth = depth;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(QueuedPath that) {
+            if (depth != that.depth) {
+                return Integer.compare(depth, that.depth);
+            }
+            if (inLinks != that.inLinks) {
+                return Integer.compare(that.inLinks, inLinks);
+            }
+            return Long.compare(sequence, that.sequence);
+        }
+    }
+}
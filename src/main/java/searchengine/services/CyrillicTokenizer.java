@@ -0,0 +1,83 @@
+package searchengine.services;
+
+import java.util.Arrays;
+
+class CyrillicTokenizer implements CharSequence {
+    private final CharSequence text;
+    private final int minLength;
+
+    private char[] buffer = new char[32];
+    private int position;
+    private int start;
+    private int length;
+
+    CyrillicTokenizer(CharSequence text, int minLength) {
+        this.text = text;
+        this.minLength = minLength;
+    }
+
+    boolean next() {
+        int textLength = text.length();
+        while (position < textLength) {
+            while (position < textLength && !isRussianLetter(text.charAt(position))) {
+                position++;
+            }
+            start = position;
+            length = 0;
+            while (position < textLength) {
+                char c = text.charAt(position);
+                if (!isRussianLetter(c)) {
+                    break;
+                }
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, length * 2);
+                }
+                buffer[length++] = toLowerCase(c);
+                position++;
+            }
+            if (length >= minLength) {
+                return true;
+            }
+        }
+        length = 0;
+        return false;
+    }
+
+    int getStart() {
+        return start;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return buffer[index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, length);
+    }
+
+    private static boolean isRussianLetter(char c) {
+        return (c >= 'А' && c <= 'я') || c == 'Ё' || c == 'ё';
+    }
+
+    private static char toLowerCase(char c) {
+        if (c == 'Ё') {
+            return 'ё';
+        }
+        return c < 'а' ? (char) (c + ('а' - 'А')) : c;
+    }
+}
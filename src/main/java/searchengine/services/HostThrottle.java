@@ -0,0 +1,60 @@
+package searchengine.services;
+
+class HostThrottle {
+    private static final double LATENCY_TOLERANCE = 3;
+    private static final double BASELINE_DRIFT = 1.01;
+
+    private final int maxLimit;
+    private double limit;
+    private int inFlight;
+    private long pausedUntil = System.nanoTime();
+    private double baselineLatency;
+    private double averageLatency;
+
+    HostThrottle(int initialLimit, int maxLimit) {
+        this.maxLimit = Math.max(1, maxLimit);
+        this.limit = Math.max(1, Math.min(initialLimit, this.maxLimit));
+    }
+
+    synchronized boolean tryAcquire(int budget) {
+        if (inFlight >= Math.min((int) limit, budget) ||
+                System.nanoTime() - pausedUntil < 0) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    synchronized void release() {
+        inFlight = Math.max(0, inFlight - 1);
+    }
+
+    synchronized void onSuccess(long latencyNanos) {
+        averageLatency = averageLatency == 0 ? latencyNanos :
+                averageLatency * 0.8 + latencyNanos * 0.2;
+        baselineLatency = baselineLatency == 0 ? latencyNanos :
+                Math.min(baselineLatency * BASELINE_DRIFT, latencyNanos);
+
+        if (averageLatency <= baselineLatency * LATENCY_TOLERANCE) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        } else {
+            limit = Math.max(1, limit - 1 / limit);
+        }
+    }
+
+    synchronized void onThrottled(long pauseNanos) {
+        limit = Math.max(1, limit / 2);
+        long pausedUntil = System.nanoTime() + pauseNanos;
+        if (pauseNanos > 0 && pausedUntil - this.pausedUntil > 0) {
+            this.pausedUntil = pausedUntil;
+        }
+    }
+
+    synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    synchronized int getInFlight() {
+        return inFlight;
+    }
+}
@@ -0,0 +1,66 @@
+package searchengine.services;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Getter
+public class IndexingJob {
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    public enum Type { SITE, PAGE }
+
+    public enum State { PREPARING, RUNNING, FINISHING, DONE, FAILED }
+
+    private final long id = SEQUENCE.incrementAndGet();
+    private final Type type;
+    private final String url;
+    private final String path;
+    private final Date startTime = new Date();
+    private volatile Date endTime;
+    private volatile State state = State.PREPARING;
+    private volatile SiteCrawl siteCrawl;
+    @Getter(AccessLevel.NONE)
+    private boolean pauseRequested;
+
+    IndexingJob(Type type, String url, String path) {
+        this.type = type;
+        this.url = url;
+        this.path = path;
+    }
+
+    public boolean isActive() {
+        return state != State.DONE && state != State.FAILED;
+    }
+
+    public Integer getSiteId() {
+        SiteCrawl crawl = siteCrawl;
+        return crawl == null ? null : crawl.getSiteEntity().getId();
+    }
+
+    public synchronized void pause() {
+        pauseRequested = true;
+        if (siteCrawl != null) {
+            siteCrawl.pause();
+        }
+    }
+
+    synchronized void attach(SiteCrawl siteCrawl) {
+        this.siteCrawl = siteCrawl;
+        state = State.RUNNING;
+        if (pauseRequested) {
+            siteCrawl.pause();
+        }
+    }
+
+    void finishing() {
+        state = State.FINISHING;
+    }
+
+    void complete(boolean succeeded) {
+        endTime = new Date();
+        state = succeeded ? State.DONE : State.FAILED;
+    }
+}
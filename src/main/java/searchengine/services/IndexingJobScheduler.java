@@ -0,0 +1,102 @@
+package searchengine.services;
+
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.stereotype.Component;
+import searchengine.exceptions.StartIndexingIsNotPossible;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+@Component
+public class IndexingJobScheduler {
+    private static final int FINISHED_JOBS_LIMIT = 50;
+
+    private final Logger logger = LogManager.getLogger(IndexingJobScheduler.class);
+
+    private final Map<String, IndexingJob> activeJobs = new ConcurrentHashMap<>();
+    private final Deque<IndexingJob> finishedJobs = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger threadNumber = new AtomicInteger();
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "indexing-job-" + threadNumber.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public synchronized IndexingJob submit(IndexingJob.Type type, String url, String path,
+                                           Supplier<SiteCrawl> start,
+                                           Consumer<SiteCrawl> finish) {
+        String key = getKey(type, url, path);
+        if (activeJobs.containsKey(key)) {
+            throw new StartIndexingIsNotPossible("Индексация уже запущена");
+        }
+        IndexingJob job = new IndexingJob(type, url, path);
+        activeJobs.put(key, job);
+
+        CompletableFuture.supplyAsync(start, executor).
+                thenCompose(siteCrawl -> {
+                    if (siteCrawl == null) {
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    job.attach(siteCrawl);
+                    return siteCrawl.getCompletion();
+                }).
+                thenAcceptAsync(siteCrawl -> {
+                    if (siteCrawl != null) {
+                        job.finishing();
+                        finish.accept(siteCrawl);
+                    }
+                }, executor).
+                whenComplete((result, e) -> {
+                    if (e != null) {
+                        logger.error("Задание индексации {}{} завершилось с ошибкой: {}",
+                                url, type == IndexingJob.Type.PAGE ? path : "", e);
+                    }
+                    job.complete(e == null);
+                    activeJobs.remove(key, job);
+                    finishedJobs.addFirst(job);
+                    while (finishedJobs.size() > FINISHED_JOBS_LIMIT) {
+                        finishedJobs.pollLast();
+                    }
+                });
+        return job;
+    }
+
+    public boolean hasActiveJobs() {
+        return !activeJobs.isEmpty();
+    }
+
+    public List<IndexingJob> getActiveJobs() {
+        return List.copyOf(activeJobs.values());
+    }
+
+    public IndexingJob findActiveSiteJob(String url) {
+        return activeJobs.get(getKey(IndexingJob.Type.SITE, url, null));
+    }
+
+    public List<IndexingJob> getJobs() {
+        List<IndexingJob> jobs = new ArrayList<>(activeJobs.values());
+        jobs.addAll(finishedJobs);
+        return jobs;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private String getKey(IndexingJob.Type type, String url, String path) {
+        return type == IndexingJob.Type.SITE ? "site:" + url : "page:" + url + path;
+    }
+}
@@ -0,0 +1,742 @@
+package searchengine.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.MarkerManager;
+import org.hibernate.Session;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlSettings;
+import searchengine.config.PipelineSettings;
+import searchengine.config.Site;
+import searchengine.config.SitesList;
+import searchengine.dto.indexing.PipelineSiteStatus;
+import searchengine.dto.indexing.PipelineStatusResponse;
+import searchengine.model.LemmaEntity;
+import searchengine.model.PageEntity;
+import searchengine.model.SiteEntity;
+import searchengine.repositories.IndexDAO;
+import searchengine.repositories.PageDAO;
+import searchengine.repositories.PageTextDAO;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Component
+@RequiredArgsConstructor
+public class IndexingPipeline {
+    private final Logger logger = LogManager.getLogger(IndexingPipeline.class);
+    private final Marker historyMarker = MarkerManager.getMarker("history");
+
+    private final PipelineSettings settings;
+    private final SitesList sites;
+    private final CrawlSettings crawlSettings;
+    private final PageFetcher pageFetcher;
+    private final UrlCanonicalizer urlCanonicalizer;
+    private final SitemapReader sitemapReader;
+    private final LemmaFinder lemmaFinder;
+    private final PageDAO pageDAO;
+    private final PageTextDAO pageTextDAO;
+    private final IndexDAO indexDAO;
+    private final LemmaFrequencyAggregator lemmaFrequencyAggregator;
+    private final InvertedIndex invertedIndex;
+    private final SiteCounters siteCounters;
+
+    private final List<SiteCrawl> crawls = new CopyOnWriteArrayList<>();
+    private final Semaphore pendingPaths = new Semaphore(0);
+    private final Semaphore freedFetchSlots = new Semaphore(0);
+    private double virtualTime;
+
+    private PipelineStage<PageTask> fetchStage;
+    private PipelineStage<PageTask> parseStage;
+    private PipelineStage<PageTask> persistStage;
+    private Thread dispatcher;
+
+    @PostConstruct
+    public void init() {
+        ThreadFactory virtualThreadFactory = settings.isVirtualThreads() ?
+                getVirtualThreadFactory() : null;
+        fetchStage = virtualThreadFactory == null ?
+                new PipelineStage<>("fetch", settings.getFetch(),
+                        eachTask(this::fetch), PageTask::done) :
+                new PipelineStage<>("fetch", settings.getFetch(),
+                        eachTask(this::fetch), PageTask::done,
+                        virtualThreadFactory);
+        parseStage = new PipelineStage<>("parse", settings.getParse(),
+                eachTask(this::parse), PageTask::done);
+        persistStage = new PipelineStage<>("persist", settings.getPersist(),
+                (tasks, completed) -> persist(tasks), PageTask::done);
+    }
+
+    private PipelineStage.Handler<PageTask> eachTask(Consumer<PageTask> action) {
+        return (tasks, completed) -> tasks.forEach(task -> {
+            action.accept(task);
+            completed.accept(task);
+        });
+    }
+
+    public SiteCrawl submit(SiteEntity siteEntity, String path,
+                            boolean followLinks, boolean incremental) {
+        return submit(siteEntity, path, followLinks, incremental, null);
+    }
+
+    public SiteCrawl submit(SiteEntity siteEntity, String path, boolean followLinks,
+                            boolean incremental, Instant lastIndexed) {
+        boolean useSitemaps = followLinks && crawlSettings.isUseSitemaps();
+        SiteCrawl siteCrawl = startSiteCrawl(siteEntity, path, followLinks, incremental,
+                useSitemaps);
+        if (useSitemaps) {
+            Thread seeder = new Thread(() -> seedFromSitemaps(siteCrawl, lastIndexed),
+                    "sitemap-" + siteEntity.getId());
+            seeder.setDaemon(true);
+            seeder.start();
+        }
+        return siteCrawl;
+    }
+
+    public synchronized SiteCrawl resume(SiteEntity siteEntity, SiteCheckpoint checkpoint) {
+        SiteCrawl siteCrawl = createSiteCrawl(siteEntity, true, checkpoint.isIncremental());
+        Set<String> checkpointPaths = new LinkedHashSet<>(checkpoint.getQueuedPaths());
+        checkpointPaths.addAll(checkpoint.getInFlightPaths());
+        List<String> storedPaths = pageDAO.findPathsBySite(siteEntity);
+        if (checkpoint.isIncremental()) {
+            addKnownPages(siteCrawl);
+            Set<String> canonicalPaths = checkpointPaths.stream().
+                    map(siteCrawl::canonicalize).
+                    collect(Collectors.toSet());
+            siteCrawl.seed(storedPaths.stream().
+                    filter(storedPath -> !canonicalPaths.contains(
+                            siteCrawl.canonicalize(storedPath))).
+                    toList());
+        } else {
+            siteCrawl.seed(storedPaths);
+        }
+
+        Map<String, Integer> pathDepths = new LinkedHashMap<>();
+        checkpointPaths.forEach(checkpointPath -> pathDepths.put(checkpointPath,
+                checkpoint.getPathDepths().getOrDefault(checkpointPath, 0)));
+        pageDAO.findPagesSavedAfter(siteEntity, checkpoint.getMaxSavedPageId(),
+                checkpoint.getInFlightPaths()).forEach(row -> {
+            String baseUrl = siteEntity.getUrl().concat((String) row[0]);
+            Document htmlCode = Jsoup.parse((String) row[1], baseUrl);
+            int depth = checkpoint.getPathDepths().getOrDefault((String) row[0], 0) + 1;
+            getPaths(siteEntity.getUrl(), htmlCode.baseUri(),
+                    PageContentExtractor.extract(htmlCode, true).getLinks()).
+                    forEach(link -> pathDepths.merge(link, depth, Math::min));
+        });
+        siteCrawl.restoreDispatchedPages(checkpoint.getCrawledPages());
+        crawls.add(siteCrawl);
+        pendingPaths.release(siteCrawl.start(pathDepths));
+        logger.info(historyMarker, "Индексация {} продолжена: в очереди {} страниц",
+                siteEntity.getUrl(), siteCrawl.getPendingPages());
+        return siteCrawl;
+    }
+
+    private synchronized SiteCrawl startSiteCrawl(SiteEntity siteEntity, String path,
+                                                  boolean followLinks, boolean incremental,
+                                                  boolean useSitemaps) {
+        SiteCrawl siteCrawl = createSiteCrawl(siteEntity, followLinks, incremental);
+        if (incremental) {
+            addKnownPages(siteCrawl);
+        } else if (followLinks) {
+            siteCrawl.seed(pageDAO.findPathsBySite(siteEntity));
+        }
+        crawls.add(siteCrawl);
+        if (useSitemaps) {
+            siteCrawl.hold();
+        }
+        pendingPaths.release(siteCrawl.start(Map.of(path, 0)));
+        if (incremental && !useSitemaps) {
+            offerKnownPages(siteCrawl);
+        }
+        return siteCrawl;
+    }
+
+    private void seedFromSitemaps(SiteCrawl siteCrawl, Instant lastIndexed) {
+        String siteUrl = siteCrawl.getSiteEntity().getUrl();
+        AtomicInteger offeredPaths = new AtomicInteger();
+        AtomicInteger unchangedPaths = new AtomicInteger();
+        try {
+            BooleanSupplier stopped = () -> siteCrawl.isCancelled() ||
+                    siteCrawl.isPaused() || siteCrawl.isBudgetExhausted();
+            int urlCount = sitemapReader.read(siteUrl, stopped, (url, lastmod) -> {
+                if (stopped.getAsBoolean()) {
+                    return false;
+                }
+                String sitemapPath = urlCanonicalizer.canonicalize(siteUrl, siteUrl, url);
+                if (sitemapPath == null) {
+                    return true;
+                }
+                if (isUnchanged(siteCrawl, sitemapPath, lastmod, lastIndexed)) {
+                    if (siteCrawl.skipUnchanged(sitemapPath)) {
+                        unchangedPaths.incrementAndGet();
+                    }
+                } else if (siteCrawl.offer(sitemapPath, 1)) {
+                    offeredPaths.incrementAndGet();
+                    pendingPaths.release();
+                }
+                return true;
+            });
+            logger.info(historyMarker, "Карта сайта {}: ссылок {}, добавлено в очередь {}," +
+                    " не изменились {}", siteUrl, urlCount, offeredPaths, unchangedPaths);
+        } finally {
+            if (siteCrawl.isIncremental() && !siteCrawl.isCancelled()) {
+                offerKnownPages(siteCrawl);
+            }
+            siteCrawl.releaseHold();
+        }
+    }
+
+    private boolean isUnchanged(SiteCrawl siteCrawl, String path, Instant lastmod,
+                                Instant lastIndexed) {
+        KnownPage knownPage = siteCrawl.getKnownPage(path);
+        if (knownPage == null || lastmod == null) {
+            return false;
+        }
+        Instant indexedVersion = lastIndexed;
+        if (knownPage.getLastModified() != null) {
+            try {
+                indexedVersion = ZonedDateTime.parse(knownPage.getLastModified(),
+                        DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            } catch (DateTimeParseException ignored) {
+            }
+        }
+        return indexedVersion != null && !lastmod.isAfter(indexedVersion);
+    }
+
+    private void offerKnownPages(SiteCrawl siteCrawl) {
+        List.copyOf(siteCrawl.getKnownPaths()).
+                forEach(knownPath -> offer(siteCrawl, knownPath, 1));
+    }
+
+    public boolean offerPriority(SiteCrawl siteCrawl, String path) {
+        if (!siteCrawl.offerPriority(path)) {
+            return false;
+        }
+        pendingPaths.release();
+        return true;
+    }
+
+    public List<SiteCrawl> getCrawls() {
+        return List.copyOf(crawls);
+    }
+
+    public void pauseAll() {
+        crawls.forEach(SiteCrawl::pause);
+    }
+
+    public void cancelAll() {
+        crawls.forEach(SiteCrawl::cancel);
+    }
+
+    public PipelineStatusResponse getStatus() {
+        List<SiteCrawl> activeCrawls = crawls.stream().
+                filter(siteCrawl -> !siteCrawl.isFinished()).
+                toList();
+
+        PipelineStatusResponse status = new PipelineStatusResponse();
+        status.setResult(true);
+        status.setSitesInProgress(activeCrawls.size());
+        status.setPagesInProgress(activeCrawls.stream().
+                mapToInt(SiteCrawl::getPendingPages).sum());
+        status.setStages(List.of(fetchStage.getStatus(), parseStage.getStatus(),
+                persistStage.getStatus()));
+        status.setSites(activeCrawls.stream().map(siteCrawl -> {
+            PipelineSiteStatus siteStatus = new PipelineSiteStatus();
+            siteStatus.setUrl(siteCrawl.getSiteEntity().getUrl());
+            siteStatus.setWeight(siteCrawl.getWeight());
+            siteStatus.setRequestLimit(siteCrawl.getThrottle().getLimit());
+            siteStatus.setRequestsInFlight(siteCrawl.getThrottle().getInFlight());
+            siteStatus.setPendingPages(siteCrawl.getPendingPages());
+            return siteStatus;
+        }).toList());
+        status.setMorphologyCache(lemmaFinder.getCacheStatus());
+        return status;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        pauseAll();
+        cancelAll();
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+        }
+        fetchStage.stop();
+        parseStage.stop();
+        persistStage.stop();
+    }
+
+    private SiteCrawl createSiteCrawl(SiteEntity siteEntity, boolean followLinks,
+                                      boolean incremental) {
+        start();
+        crawls.removeIf(SiteCrawl::isFinished);
+        Site site = findSite(siteEntity.getUrl());
+        return new SiteCrawl(siteEntity, followLinks, incremental,
+                site == null ? 1 : site.getWeight(),
+                followLinks ? getBudget(site) : CrawlBudget.UNLIMITED, urlCanonicalizer,
+                settings.getInitialRequestsPerSite(), settings.getMaxRequestsPerSite());
+    }
+
+    private Site findSite(String url) {
+        return sites.getSites().stream().
+                filter(site -> site.getUrl().equals(url)).
+                findFirst().orElse(null);
+    }
+
+    private CrawlBudget getBudget(Site site) {
+        Integer maxDepth = site == null ? null : site.getMaxDepth();
+        Integer maxPages = site == null ? null : site.getMaxPages();
+        Duration timeLimit = site == null ? null : site.getTimeLimit();
+        return new CrawlBudget(
+                maxDepth == null ? crawlSettings.getMaxDepth() : maxDepth,
+                maxPages == null ? crawlSettings.getMaxPages() : maxPages,
+                timeLimit == null ? crawlSettings.getTimeLimit() : timeLimit);
+    }
+
+    private void addKnownPages(SiteCrawl siteCrawl) {
+        pageDAO.findPageValidatorsBySite(siteCrawl.getSiteEntity()).forEach(row ->
+                siteCrawl.addKnownPage((String) row[1], new KnownPage(
+                        (int) row[0], (String) row[2], (String) row[3],
+                        (byte[]) row[4])));
+    }
+
+    private void start() {
+        if (dispatcher != null) {
+            return;
+        }
+        fetchStage.start();
+        parseStage.start();
+        persistStage.start();
+        dispatcher = new Thread(this::dispatch, "dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+        logger.info(historyMarker, "Запущен конвейер индексации: {}", settings);
+    }
+
+    private void offer(SiteCrawl siteCrawl, String path, int depth) {
+        if (siteCrawl.offer(path, depth)) {
+            pendingPaths.release();
+        }
+    }
+
+    private void dispatch() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                pendingPaths.acquire();
+            } catch (InterruptedException e) {
+                return;
+            }
+            freedFetchSlots.drainPermits();
+
+            List<SiteCrawl> activeCrawls = List.copyOf(crawls);
+            PageTask task = activeCrawls.stream().
+                    filter(SiteCrawl::isPriority).
+                    map(siteCrawl -> pollTask(siteCrawl, Integer.MAX_VALUE)).
+                    filter(Objects::nonNull).
+                    findFirst().orElse(null);
+            if (task == null) {
+                task = pollFairTask(activeCrawls);
+            }
+
+            if (task != null) {
+                fetchStage.put(task, task.getSiteCrawl().isPriority());
+            } else if (activeCrawls.stream().anyMatch(SiteCrawl::hasQueuedPaths)) {
+                pendingPaths.release();
+                try {
+                    freedFetchSlots.tryAcquire(100, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private PageTask pollFairTask(List<SiteCrawl> activeCrawls) {
+        List<SiteCrawl> fairCrawls = activeCrawls.stream().
+                filter(siteCrawl -> !siteCrawl.isPriority() && !siteCrawl.isFinished()).
+                sorted(Comparator.comparingDouble(siteCrawl ->
+                        siteCrawl.getVirtualTime(virtualTime))).
+                toList();
+        int totalWeight = fairCrawls.stream().mapToInt(SiteCrawl::getWeight).sum();
+        for (SiteCrawl siteCrawl : fairCrawls) {
+            int budget = (int) Math.ceil((double) settings.getFetch().getThreads() *
+                    siteCrawl.getWeight() / totalWeight);
+            PageTask task = pollTask(siteCrawl, Math.max(1, budget));
+            if (task != null) {
+                virtualTime = siteCrawl.advanceVirtualTime(virtualTime);
+                return task;
+            }
+        }
+        return null;
+    }
+
+    private PageTask pollTask(SiteCrawl siteCrawl, int budget) {
+        if (!siteCrawl.hasQueuedPaths() || !siteCrawl.tryAcquireFetchSlot(budget)) {
+            return null;
+        }
+        PageTask task = siteCrawl.poll();
+        if (task == null) {
+            siteCrawl.releaseFetchSlot();
+        }
+        return task;
+    }
+
+    private void fetch(PageTask task) {
+        boolean isFetched;
+        try {
+            isFetched = fetchPage(task);
+        } finally {
+            task.releaseFetchSlot();
+            freedFetchSlots.release();
+        }
+        if (isFetched) {
+            parseStage.put(task, task.getSiteCrawl().isPriority());
+        } else if (!task.isRequeued()) {
+            task.done();
+        }
+    }
+
+    private boolean fetchPage(PageTask task) {
+        SiteCrawl siteCrawl = task.getSiteCrawl();
+        if (siteCrawl.isCancelled()) {
+            return false;
+        }
+
+        if (!siteCrawl.isFollowLinks() || task.isForced()) {
+            PageEntity page = new PageEntity();
+            page.setSiteEntity(siteCrawl.getSiteEntity());
+            page.setPath(task.getPath());
+            PageEntity foundPage = pageDAO.findPageByPathAndSite(page);
+            if (foundPage != null) {
+                decrementLemmaFrequencyAndDeletePage(siteCrawl.getSiteEntity(), foundPage);
+            }
+        }
+
+        KnownPage knownPage = siteCrawl.takeKnownPage(task.getPath());
+        if (knownPage != null && !task.isForced()) {
+            task.setKnownPage(knownPage);
+        }
+        long started = System.nanoTime();
+        pageFetcher.fetch(task);
+        if (task.isSkipped()) {
+            return false;
+        }
+        if (!task.isTransientError()) {
+            siteCrawl.getThrottle().onSuccess(System.nanoTime() - started);
+        } else {
+            siteCrawl.getThrottle().onThrottled(task.getRetryAfter() == null ?
+                    0 : task.getRetryAfter().toNanos());
+            if (requeue(task)) {
+                return false;
+            }
+        }
+        return task.getKnownPage() == null || isChanged(task);
+    }
+
+    private boolean requeue(PageTask task) {
+        SiteCrawl siteCrawl = task.getSiteCrawl();
+        if (task.getAttempt() >= settings.getMaxRetries() || siteCrawl.isCancelled()) {
+            return false;
+        }
+        long backoff = Math.min(settings.getMaxRetryBackoff().toNanos(),
+                settings.getRetryBackoff().toNanos() << Math.min(task.getAttempt(), 20));
+        if (task.getRetryAfter() != null) {
+            backoff = Math.max(backoff, task.getRetryAfter().toNanos());
+        }
+        long delay = backoff + ThreadLocalRandom.current().nextLong(backoff / 10 + 1);
+
+        PageTask retryTask = new PageTask(siteCrawl, task.getPath());
+        retryTask.setDepth(task.getDepth());
+        retryTask.setForced(task.isForced());
+        retryTask.setAttempt(task.getAttempt() + 1);
+        retryTask.setKnownPage(task.getKnownPage());
+        task.setRequeued(true);
+        siteCrawl.retry(retryTask, delay);
+        pendingPaths.release();
+        logger.warn("Страница {} будет загружена повторно через {} мс (попытка {})",
+                task.getUrl(), TimeUnit.NANOSECONDS.toMillis(delay),
+                retryTask.getAttempt() + 1);
+        return true;
+    }
+
+    private boolean isChanged(PageTask task) {
+        KnownPage knownPage = task.getKnownPage();
+        SiteEntity siteEntity = task.getSiteCrawl().getSiteEntity();
+        int statusCode = task.getStatusCode();
+        if (statusCode == 304) {
+            return false;
+        }
+        if (statusCode == 404 || statusCode == 410) {
+            deletePage(siteEntity, knownPage.getId());
+            logger.info("Страница {} удалена с сайта", task.getUrl());
+            return false;
+        }
+        if (statusCode >= 400) {
+            return false;
+        }
+        if (Arrays.equals(knownPage.getContentHash(), task.getContentHash())) {
+            if (!Objects.equals(knownPage.getEtag(), task.getEtag()) ||
+                    !Objects.equals(knownPage.getLastModified(), task.getLastModified())) {
+                Consumer<Session> update = session -> pageDAO.updateValidators(session,
+                        knownPage.getId(), task.getEtag(), task.getLastModified());
+                pageDAO.inSessionWithTransaction(update);
+            }
+            return false;
+        }
+        deletePage(siteEntity, knownPage.getId());
+        return true;
+    }
+
+    private void deletePage(SiteEntity siteEntity, int pageId) {
+        Function<Session, PageEntity> find = session ->
+                (PageEntity) pageDAO.findOneById(session, pageId);
+        PageEntity pageEntity = (PageEntity) pageDAO.fromSession(find);
+        if (pageEntity != null) {
+            decrementLemmaFrequencyAndDeletePage(siteEntity, pageEntity);
+        }
+    }
+
+    private void parse(PageTask task) {
+        if (task.getSiteCrawl().isCancelled()) {
+            task.done();
+            return;
+        }
+
+        byte[] body = task.getBody() == null ? new byte[0] : task.getBody();
+        task.setBody(null);
+        Document htmlCode;
+        try {
+            htmlCode = Jsoup.parse(new ByteArrayInputStream(body), task.getCharset(),
+                    task.getLocation() == null ? task.getUrl() : task.getLocation());
+        } catch (IOException e) {
+            logger.error("при разборе {} возникла ошибка: {}", task.getUrl(), e);
+            htmlCode = Jsoup.parse("", task.getUrl());
+        }
+
+        int statusCode = task.getStatusCode();
+        PageContentExtractor extractor = PageContentExtractor.extract(htmlCode,
+                (statusCode == 200 || statusCode == 203) &&
+                        task.getSiteCrawl().isFollowLinks());
+        task.setContent(new String(body, htmlCode.charset()));
+        task.setTitle(extractor.getTitle());
+        task.setText(extractor.getText());
+        task.setLinks(getPaths(task.getSiteCrawl().getSiteEntity().getUrl(),
+                htmlCode.baseUri(), extractor.getLinks()));
+        task.setLemmaPositions(lemmaFinder.collectLemmaPositions(task.getText()));
+        persistStage.put(task, task.getSiteCrawl().isPriority());
+    }
+
+    private List<String> getPaths(String siteUrl, String baseUrl, List<String> links) {
+        return links.stream().
+                map(href -> urlCanonicalizer.canonicalize(siteUrl, baseUrl, href)).
+                filter(Objects::nonNull).
+                distinct().
+                toList();
+    }
+
+    private void persist(List<PageTask> tasks) {
+        List<PageTask> liveTasks = new ArrayList<>(tasks.size());
+        tasks.forEach(task -> {
+            if (task.getSiteCrawl().isCancelled()) {
+                task.done();
+            } else {
+                liveTasks.add(task);
+            }
+        });
+
+        if (liveTasks.isEmpty() || save(liveTasks)) {
+            return;
+        }
+        if (liveTasks.size() > 1) {
+            liveTasks.removeIf(task -> save(List.of(task)));
+        }
+        liveTasks.forEach(task -> {
+            logger.error("Страница {} не сохранена", task.getUrl());
+            task.done();
+        });
+    }
+
+    private boolean save(List<PageTask> tasks) {
+        Set<Integer> siteIds = tasks.stream().
+                map(task -> task.getSiteCrawl().getSiteEntity().getId()).
+                collect(Collectors.toSet());
+        lemmaFrequencyAggregator.lockSites(siteIds);
+        try {
+            return saveAndIndex(tasks);
+        } finally {
+            lemmaFrequencyAggregator.unlockSites(siteIds);
+        }
+    }
+
+    private boolean saveAndIndex(List<PageTask> tasks) {
+        Map<PageTask, PageEntity> savedPages = new LinkedHashMap<>();
+        Map<PageTask, HashMap<LemmaEntity, Integer>> savedLemmas = new HashMap<>();
+
+        Function<Session, Boolean> save = session -> {
+            for (PageTask task : tasks) {
+                PageEntity pageEntity = new PageEntity();
+                pageEntity.setSiteEntity(task.getSiteCrawl().getSiteEntity());
+                pageEntity.setPath(task.getPath());
+                pageEntity.setCode(task.getStatusCode());
+                pageEntity.setContent(task.getContent());
+                pageEntity.setEtag(task.getEtag());
+                pageEntity.setLastModified(task.getLastModified());
+                pageEntity.setContentHash(task.getContentHash());
+                pageDAO.save(session, pageEntity);
+                pageTextDAO.save(session, pageEntity, task.getTitle(), task.getText());
+                savedPages.put(task, pageEntity);
+            }
+
+            HexFormat hexFormat = HexFormat.of();
+            StringBuilder insertQuery = new StringBuilder();
+            savedPages.keySet().stream().
+                    collect(Collectors.groupingBy(PageTask::getSiteCrawl)).
+                    forEach((siteCrawl, siteTasks) -> {
+                        SiteEntity siteEntity = siteCrawl.getSiteEntity();
+                        Set<String> lemmas = new HashSet<>();
+                        siteTasks.forEach(task ->
+                                lemmas.addAll(task.getLemmaPositions().keySet()));
+                        if (lemmas.isEmpty()) {
+                            return;
+                        }
+                        HashMap<String, Integer> lemmaIds = lemmaFrequencyAggregator.
+                                getLemmaIds(session, siteEntity, lemmas);
+
+                        siteTasks.forEach(task -> {
+                            HashMap<LemmaEntity, Integer> lemmaEntities =
+                                    getLemmaEntities(siteEntity, task, lemmaIds);
+                            savedLemmas.put(task, lemmaEntities);
+                            int pageId = savedPages.get(task).getId();
+                            lemmaEntities.forEach((lemmaEntity, rank) ->
+                                    insertQuery.append(insertQuery.length() == 0 ? "" : ",").
+                                            append("(").append(rank).append(", ").
+                                            append(lemmaEntity.getId()).append(", ").
+                                            append(pageId).append(", X'").
+                                            append(hexFormat.formatHex(task.getLemmaPositions().
+                                                    get(lemmaEntity.getLemma()).encode())).
+                                            append("')"));
+                        });
+                    });
+            if (insertQuery.length() > 0) {
+                indexDAO.multiInsert(session, insertQuery);
+            }
+            return true;
+        };
+
+        Object isSaved = null;
+        try {
+            isSaved = pageDAO.fromSessionWithTransaction(save);
+        } catch (RuntimeException e) {
+            logger.error("При сохранении страниц {} и их лемм" +
+                            " возникли ошибки: {}",
+                    tasks.stream().map(PageTask::getUrl).toList(), e);
+        }
+        if (isSaved == null) {
+            return false;
+        }
+
+        savedPages.forEach((task, pageEntity) -> {
+            int siteId = pageEntity.getSiteEntity().getId();
+            siteCounters.addPages(siteId, 1);
+            HashMap<LemmaEntity, Integer> lemmaEntities =
+                    savedLemmas.getOrDefault(task, new HashMap<>(0));
+            lemmaFrequencyAggregator.increment(siteId,
+                    lemmaEntities.keySet().stream().collect(Collectors.
+                            toMap(LemmaEntity::getLemma, LemmaEntity::getId)));
+            invertedIndex.addPage(siteId, pageEntity.getId(), lemmaEntities);
+            offerLinks(task);
+            task.getSiteCrawl().pageSaved(pageEntity.getId());
+        });
+        tasks.forEach(PageTask::done);
+        return true;
+    }
+
+    private HashMap<LemmaEntity, Integer> getLemmaEntities(
+            SiteEntity siteEntity, PageTask task,
+            HashMap<String, Integer> lemmaIds) {
+
+        HashMap<LemmaEntity, Integer> lemmaEntities = new HashMap<>();
+        task.getLemmaPositions().forEach((lemma, positions) -> {
+            Integer lemmaId = lemmaIds.get(lemma);
+            if (lemmaId == null) {
+                return;
+            }
+            LemmaEntity lemmaEntity = new LemmaEntity();
+            lemmaEntity.setId(lemmaId);
+            lemmaEntity.setSiteEntity(siteEntity);
+            lemmaEntity.setLemma(lemma);
+            lemmaEntities.put(lemmaEntity, positions.size());
+        });
+        return lemmaEntities;
+    }
+
+    private void offerLinks(PageTask task) {
+        SiteCrawl siteCrawl = task.getSiteCrawl();
+        List<String> links = task.getLinks();
+        if (links == null || links.isEmpty() || siteCrawl.isCancelled()) {
+            return;
+        }
+        links.forEach(path -> offer(siteCrawl, path, task.getDepth() + 1));
+    }
+
+    private void decrementLemmaFrequencyAndDeletePage(SiteEntity siteEntity,
+                                                      PageEntity pageEntity) {
+        List<Integer> lemmaIds = new ArrayList<>();
+        Function<Session, Boolean> delete = session -> {
+            indexDAO.findIndexesByPage(session, pageEntity).
+                    forEach(indexEntity -> {
+                        if (indexEntity != null) {
+                            lemmaIds.add(indexEntity.getLemmaEntity().getId());
+                        }
+                    });
+            pageDAO.delete(session, pageEntity);
+            return true;
+        };
+        try {
+            if (pageDAO.fromSessionWithTransaction(delete) == null) {
+                logger.error("Страница {} не удалена", pageEntity.getPath());
+                return;
+            }
+            lemmaFrequencyAggregator.decrement(siteEntity.getId(), lemmaIds);
+            siteCounters.addPages(siteEntity.getId(), -1);
+            invertedIndex.removePage(pageEntity.getId(), lemmaIds);
+        } catch (RuntimeException e) {
+            logger.error("При удалении страницы {}" +
+                            " возникли ошибки: {}", pageEntity.getPath(), e);
+        }
+    }
+
+    private ThreadFactory getVirtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").
+                    getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            logger.warn(historyMarker, "Виртуальные потоки недоступны в Java {}," +
+                            " этап загрузки запущен на обычных потоках",
+                    Runtime.version().feature());
+            return null;
+        }
+    }
+}
@@ -1,11 +1,16 @@
 package searchengine.services;
 
 import searchengine.dto.indexing.IndexPageResponse;
+import searchengine.dto.indexing.IndexingJobsResponse;
+import searchengine.dto.indexing.PipelineStatusResponse;
 import searchengine.dto.indexing.StartIndexingResponse;
 import searchengine.dto.indexing.StopIndexingResponse;
 
 public interface IndexingService {
-    StartIndexingResponse startIndexing();
+    StartIndexingResponse startIndexing(boolean incremental);
     StopIndexingResponse stopIndexing();
+    StartIndexingResponse resumeIndexing();
     IndexPageResponse indexPage(String url);
+    PipelineStatusResponse getPipelineStatus();
+    IndexingJobsResponse getJobs();
 }
@@ -8,30 +8,29 @@ import org.apache.logging.log4j.Marker;
 import org.apache.logging.log4j.MarkerManager;
 import org.hibernate.Session;
 
-import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Service;
 import searchengine.config.Site;
 import searchengine.config.SitesList;
 import searchengine.dto.indexing.IndexPageResponse;
+import searchengine.dto.indexing.IndexingJobStatus;
+import searchengine.dto.indexing.IndexingJobsResponse;
+import searchengine.dto.indexing.PipelineStatusResponse;
 import searchengine.dto.indexing.StartIndexingResponse;
 import searchengine.dto.indexing.StopIndexingResponse;
 import searchengine.exceptions.IndexPageIsNotPossible;
 import searchengine.exceptions.StartIndexingIsNotPossible;
 import searchengine.exceptions.StopIndexingIsNotPossible;
 
-import searchengine.model.PageEntity;
 import searchengine.model.SiteEntity;
 import searchengine.model.StatusType;
+import searchengine.repositories.PageDAO;
 import searchengine.repositories.SiteDAO;
 
+import java.time.Instant;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ForkJoinPool;
-import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -42,28 +41,29 @@ public class IndexingServiceImpl implements IndexingService{
 
     private final SitesList sites;
     private final SiteDAO siteDAO;
-    private final ApplicationContext context;
-
-    private ForkJoinPool pool;
-    private ExecutorService executorService;
-    private boolean hasIndexingStarted = false;
+    private final PageDAO pageDAO;
+    private final InvertedIndex invertedIndex;
+    private final LemmaFrequencyAggregator lemmaFrequencyAggregator;
+    private final IndexingPipeline indexingPipeline;
+    private final SiteCounters siteCounters;
+    private final CrawlCheckpoint crawlCheckpoint;
+    private final IndexingJobScheduler jobScheduler;
 
     @Override
-    public StartIndexingResponse startIndexing() {
-        logger.info(historyMarker, "Запуск полной индексации: {}",
-                sites);
+    public synchronized StartIndexingResponse startIndexing(boolean incremental) {
+        logger.info(historyMarker, "Запуск {} индексации: {}",
+                incremental ? "инкрементальной" : "полной", sites);
 
-        if (isPoolRunning()) {
+        if (jobScheduler.hasActiveJobs()) {
             logger.info(historyMarker,
                     "Запуск полной индексации во время" +
                             " индексации {}", sites);
             throw new StartIndexingIsNotPossible("Индексация уже запущена");
         }
 
-        hasIndexingStarted = true;
-
-        createExecutorService(sites.getSites().size() + 1);
-        executorService.execute(runPathSearchingAndIndexing());
+        sites.getSites().forEach(site -> jobScheduler.submit(IndexingJob.Type.SITE,
+                site.getUrl(), "/", () -> startSiteIndexing(site, incremental),
+                siteCrawl -> finishSiteIndexing(siteCrawl, "/")));
 
         StartIndexingResponse indexingResponse = new StartIndexingResponse();
         indexingResponse.setResult(true);
@@ -71,24 +71,18 @@ public class IndexingServiceImpl implements IndexingService{
     }
 
     @Override
-    public StopIndexingResponse stopIndexing() {
+    public synchronized StopIndexingResponse stopIndexing() {
         logger.info(historyMarker,
-                "Запуск полной остановки индексации: {}", sites);
-
-        if (!isPoolRunning() && hasIndexingStarted) {
-            logger.info(historyMarker,
-                    "Остановка полной индексации при" +
-                            " подготовке к переиндексации");
-            throw new StopIndexingIsNotPossible("Идет подготовка к переиндексации");
-        }
+                "Запуск приостановки индексации: {}", sites);
 
-        if (!isPoolRunning()) {
+        List<IndexingJob> activeJobs = jobScheduler.getActiveJobs();
+        if (activeJobs.isEmpty()) {
             logger.info(historyMarker,
                     "Остановка полной индексации при не запущенной индексации");
             throw new StopIndexingIsNotPossible("Индексация не запущена");
         }
 
-        shutdownForkJoinPool();
+        activeJobs.forEach(IndexingJob::pause);
 
         StopIndexingResponse stopIndexingResponse = new StopIndexingResponse();
         stopIndexingResponse.setResult(true);
@@ -96,155 +90,231 @@ public class IndexingServiceImpl implements IndexingService{
     }
 
     @Override
-    public IndexPageResponse indexPage(String indexURL) {
-        logger.info(historyMarker,"Запуск индексации страницы: {}",
-                indexURL);
+    public synchronized StartIndexingResponse resumeIndexing() {
+        logger.info(historyMarker, "Продолжение приостановленной индексации");
 
-        if (isPoolRunning()) {
+        if (jobScheduler.hasActiveJobs()) {
             logger.info(historyMarker,
-                    "Запуск индексации страницы {} во время индексации",
-                    indexURL);
+                    "Продолжение индексации во время индексации {}", sites);
             throw new StartIndexingIsNotPossible("Индексация уже запущена");
         }
 
+        Collection<SiteCheckpoint> checkpoints = crawlCheckpoint.getCheckpoints();
+        if (checkpoints.isEmpty()) {
+            throw new StartIndexingIsNotPossible("Нет приостановленной индексации");
+        }
+
+        checkpoints.forEach(checkpoint -> jobScheduler.submit(IndexingJob.Type.SITE,
+                checkpoint.getUrl(), "/", () -> resumeSiteIndexing(checkpoint),
+                siteCrawl -> finishSiteIndexing(siteCrawl, "/")));
+
+        StartIndexingResponse indexingResponse = new StartIndexingResponse();
+        indexingResponse.setResult(true);
+        return indexingResponse;
+    }
+
+    @Override
+    public synchronized IndexPageResponse indexPage(String indexURL) {
+        logger.info(historyMarker,"Запуск индексации страницы: {}",
+                indexURL);
+
         HashMap<String, String> homeAndPathURL = splitIndexUrl(indexURL.trim());
 
         Site foundSite = findSite(homeAndPathURL);
+        String path = homeAndPathURL.get(foundSite.getUrl());
         SiteEntity foundSiteEntity = siteDAO.findSiteByUrl(foundSite.getUrl());
 
-        SiteEntity siteEntity = foundSiteEntity == null ?
-                saveSiteInDataBase(foundSite):
-                updateSiteEntity(foundSiteEntity, StatusType.INDEXING, null);
+        IndexingJob siteJob = jobScheduler.findActiveSiteJob(foundSite.getUrl());
+        if (siteJob != null) {
+            SiteCrawl siteCrawl = siteJob.getSiteCrawl();
+            if (siteCrawl != null && indexingPipeline.offerPriority(siteCrawl, path)) {
+                logger.info(historyMarker, "Страница {} добавлена в начало очереди" +
+                        " индексации сайта", indexURL);
+                IndexPageResponse indexPageResponse = new IndexPageResponse();
+                indexPageResponse.setResult(true);
+                return indexPageResponse;
+            }
+            logger.info(historyMarker,
+                    "Запуск индексации страницы {} во время индексации сайта",
+                    indexURL);
+            throw new StartIndexingIsNotPossible("Индексация сайта уже запущена");
+        }
 
-        createExecutorService(1);
-        createForkJoinPool();
-        startPathSearchingAndIndexing(siteEntity, homeAndPathURL.get(siteEntity.getUrl()),
-                false);
+        jobScheduler.submit(IndexingJob.Type.PAGE, foundSite.getUrl(), path, () -> {
+            SiteEntity siteEntity = foundSiteEntity == null ?
+                    saveSiteInDataBase(foundSite, true) :
+                    updateSiteEntity(foundSiteEntity, StatusType.INDEXING, null);
+            return indexingPipeline.submit(siteEntity, path, false, false);
+        }, siteCrawl -> finishSiteIndexing(siteCrawl, path));
 
         IndexPageResponse indexPageResponse = new IndexPageResponse();
         indexPageResponse.setResult(true);
         return indexPageResponse;
     }
 
-    private boolean isPoolRunning() {
-        return pool != null && pool.getRunningThreadCount() != 0;
+    @Override
+    public IndexingJobsResponse getJobs() {
+        IndexingJobsResponse response = new IndexingJobsResponse();
+        response.setResult(true);
+        response.setJobs(jobScheduler.getJobs().stream().map(job -> {
+            IndexingJobStatus status = new IndexingJobStatus();
+            status.setId(job.getId());
+            status.setType(job.getType().name());
+            status.setUrl(job.getUrl());
+            status.setPath(job.getPath());
+            status.setState(job.getState().name());
+            status.setStartTime(job.getStartTime());
+            status.setEndTime(job.getEndTime());
+            SiteCrawl siteCrawl = job.getSiteCrawl();
+            status.setPendingPages(siteCrawl == null || !job.isActive() ?
+                    0 : siteCrawl.getPendingPages());
+            return status;
+        }).toList());
+        return response;
     }
 
-    private Runnable runPathSearchingAndIndexing(){
-        return ()-> {
-            deleteSitesEntities();
-            createForkJoinPool();
-            sites.getSites().forEach(site -> {
-                SiteEntity siteEntity = saveSiteInDataBase(site);
-                startPathSearchingAndIndexing(siteEntity, "/", true);
-            });
-        };
+    @Override
+    public PipelineStatusResponse getPipelineStatus() {
+        return indexingPipeline.getStatus();
     }
 
-    private void createForkJoinPool() {
-        if (pool == null || pool.isShutdown()) {
-            pool = new ForkJoinPool();
+    private SiteCrawl startSiteIndexing(Site site, boolean incremental) {
+        crawlCheckpoint.remove(site.getUrl());
+        SiteEntity foundSiteEntity = siteDAO.findSiteByUrl(site.getUrl());
+        if (incremental && foundSiteEntity != null) {
+            Instant lastIndexed = foundSiteEntity.getStatus() == StatusType.INDEXED ?
+                    foundSiteEntity.getStatusTime().toInstant() : null;
+            updateSiteEntity(foundSiteEntity, StatusType.INDEXING, null);
+            return indexingPipeline.submit(foundSiteEntity, "/", true, true, lastIndexed);
+        }
+
+        siteDAO.findInactiveSiteIds(site.getUrl()).forEach(this::dropGeneration);
+        SiteEntity siteEntity = saveSiteInDataBase(site, foundSiteEntity == null);
+        if (!siteEntity.isActive()) {
+            invertedIndex.hideSite(siteEntity.getId());
         }
+        return indexingPipeline.submit(siteEntity, "/", true, false);
     }
 
-    private void deleteSitesEntities() {
-        Consumer<Session> delete = session ->
-                sites.getSites().forEach(site -> {
-                    SiteEntity foundSiteEntity = siteDAO.
-                            findSiteByUrl(site.getUrl());
-                    if (foundSiteEntity != null) {
-                        siteDAO.delete(session, foundSiteEntity);
-                    }
-                });
-        do {
-            try {
-                siteDAO.inSessionWithTransaction(delete);
-            } catch (RuntimeException e) {
-                logger.error("При удалении сайтов {} возникли " +
-                                "ошибки: {}",
-                        sites.getSites().stream().map(site -> site.getUrl()).
-                                collect(Collectors.toList()), e);
-            }
-        } while (siteDAO.containsByStatus(StatusType.INDEXED)
-            || siteDAO.containsByStatus(StatusType.FAILED));
+    private SiteCrawl resumeSiteIndexing(SiteCheckpoint checkpoint) {
+        Function<Session, SiteEntity> find = session ->
+                (SiteEntity) siteDAO.findOneById(session, checkpoint.getSiteId());
+        SiteEntity siteEntity = (SiteEntity) siteDAO.fromSession(find);
+        if (siteEntity == null || !siteEntity.getUrl().equals(checkpoint.getUrl())) {
+            logger.info(historyMarker, "данные {} удалены, продолжение индексации" +
+                    " невозможно", checkpoint.getUrl());
+            crawlCheckpoint.remove(checkpoint.getUrl());
+            return null;
+        }
+
+        try {
+            lemmaFrequencyAggregator.recomputeFrequencies(siteEntity.getId());
+        } catch (RuntimeException e) {
+            logger.error("При пересчёте частот лемм сайта {} возникли" +
+                    " ошибки: {}", siteEntity.getUrl(), e);
+        }
+        siteCounters.reconcile(siteEntity);
+        updateSiteEntity(siteEntity, StatusType.INDEXING, null);
+        return indexingPipeline.resume(siteEntity, checkpoint);
     }
 
-    private void startPathSearchingAndIndexing(SiteEntity siteEntity, String path,
-                                               boolean indexingOfAllPages) {
+    private void dropGeneration(int siteId) {
+        try {
+            siteDAO.deleteGeneration(siteId);
+        } catch (RuntimeException e) {
+            logger.error("При удалении данных сайта {} возникли " +
+                    "ошибки: {}", siteId, e);
+            return;
+        }
+        invertedIndex.removeSite(siteId);
+        lemmaFrequencyAggregator.removeSite(siteId);
+        siteCounters.remove(siteId);
+    }
 
-        PathSearcher pathSearcher = new PathSearcher(siteEntity,path, context);
-        pathSearcher.setIndexingOfAllPages(indexingOfAllPages);
-        pool.execute(pathSearcher);
+    private void finishIndexing(SiteEntity siteEntity, StatusType status,
+                                String lastError) {
+        if (siteEntity.isActive()) {
+            updateSiteEntity(siteEntity, status, lastError);
+            return;
+        }
 
-        updateSiteEntityAfterIndexing(siteEntity, pathSearcher);
+        SiteEntity previousSiteEntity = siteDAO.findSiteByUrl(siteEntity.getUrl());
+        if (previousSiteEntity != null &&
+                (StatisticsServiceImpl.ERRORS[0].equals(lastError) ||
+                        StatisticsServiceImpl.ERRORS[2].equals(lastError))) {
+            updateSiteEntity(previousSiteEntity, status, lastError);
+            dropGeneration(siteEntity.getId());
+            logger.info(historyMarker, "данные {} не заменены, поиск " +
+                    "выполняется по предыдущей индексации", siteEntity.getUrl());
+            return;
+        }
+
+        siteEntity.setLastError(lastError);
+        siteEntity.setStatus(status);
+        siteEntity.setStatusTime(new Date());
+        siteCounters.writeTo(siteEntity);
+        if (siteDAO.activate(siteEntity) == null) {
+            return;
+        }
+        invertedIndex.showSite(siteEntity.getId());
+        if (previousSiteEntity != null) {
+            dropGeneration(previousSiteEntity.getId());
+        }
     }
 
-    private SiteEntity saveSiteInDataBase(Site site) {
+    private SiteEntity saveSiteInDataBase(Site site, boolean active) {
         SiteEntity siteEntity = new SiteEntity();
+        siteEntity.setActive(active);
+        siteEntity.setPageCount(0);
+        siteEntity.setLemmaCount(0);
+        siteEntity.setIndexCount(0);
         siteEntity.setName(site.getName());
         siteEntity.setUrl(site.getUrl());
         siteEntity.setStatus(StatusType.INDEXING);
         siteEntity.setStatusTime(new Date());
-        return siteDAO.save(siteEntity);
-    }
-
-    private void updateSiteEntityAfterIndexing(SiteEntity siteEntity,
-                                               PathSearcher pathSearcher) {
-
-        executorService.execute(() -> {
-            waitForEndOfIndexing(pathSearcher);
-            if (pool.isShutdown()) {
-                updateSiteEntity(siteEntity, StatusType.FAILED,
-                        StatisticsServiceImpl.ERRORS[2]);
-                logger.info(historyMarker,
-                        "индексация {} остановлена пользователем",
-                        siteEntity.getUrl());
-            } else {
-                String lastError = getErrorText(siteEntity);
-                updateSiteEntity(siteEntity,
-                        lastError == null ? StatusType.INDEXED : StatusType.FAILED,
-                        lastError);
-                logger.info(historyMarker, "индексация {} заврешена",
-                        siteEntity.getUrl().
-                                concat(!pathSearcher.getIndexingOfAllPages() ?
-                                        pathSearcher.getPath() : ""));
-            }
-            shutdownIfIndexingIsOver();
-        });
-    }
-
-    private void createExecutorService(int nThreads) {
-        if (executorService == null || executorService.isShutdown()){
-            executorService = Executors.
-                    newFixedThreadPool(nThreads);
+        SiteEntity savedSiteEntity = siteDAO.save(siteEntity);
+        if (savedSiteEntity != null) {
+            siteCounters.reconcile(savedSiteEntity);
         }
+        return savedSiteEntity;
     }
 
-    private void waitForEndOfIndexing(PathSearcher pathSearcher) {
-        do {
-            if (pathSearcher.getIndexingOfAllPages()) {
-                try {
-                    Thread.sleep(20000);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
-            }
-        } while (!pathSearcher.isDone() && !pool.isTerminated());
+    private void finishSiteIndexing(SiteCrawl siteCrawl, String path) {
+        SiteEntity siteEntity = siteCrawl.getSiteEntity();
+        lemmaFrequencyAggregator.flushAndDeleteUnused(siteEntity.getId());
+        if (siteCrawl.isPaused()) {
+            crawlCheckpoint.save();
+            updateSiteEntity(siteEntity, StatusType.FAILED,
+                    StatisticsServiceImpl.ERRORS[4]);
+            logger.info(historyMarker,
+                    "индексация {} приостановлена пользователем",
+                    siteEntity.getUrl());
+        } else if (siteCrawl.isCancelled()) {
+            crawlCheckpoint.remove(siteEntity.getUrl());
+            finishIndexing(siteEntity, StatusType.FAILED,
+                    StatisticsServiceImpl.ERRORS[2]);
+            logger.info(historyMarker,
+                    "индексация {} остановлена пользователем",
+                    siteEntity.getUrl());
+        } else {
+            String lastError = getErrorText(siteEntity);
+            finishIndexing(siteEntity,
+                    lastError == null ? StatusType.INDEXED : StatusType.FAILED,
+                    lastError);
+            logger.info(historyMarker, "индексация {} заврешена",
+                    siteEntity.getUrl().
+                            concat(!siteCrawl.isFollowLinks() ? path : ""));
+        }
     }
 
     private String getErrorText(SiteEntity siteEntity) {
-        Session session = siteDAO.getSession();
-        Set<PageEntity> pageEntities = siteDAO.findById(session, siteEntity).
-                getPageEntitySet();
-        Set<String> pathsWithErrors = pageEntities.stream().
-                filter(pageEntity -> pageEntity.getCode() >= 400).
-                map(PageEntity::getPath).
-                collect(Collectors.toSet());
-        session.close();
+        Set<String> pathsWithErrors = new LinkedHashSet<>(
+                pageDAO.findErrorPathsBySite(siteEntity));
         if (pathsWithErrors.isEmpty()) {
             return null;
         }
-        return pageEntities.size() == 1 && pathsWithErrors.contains("/") ?
+        return pathsWithErrors.equals(Set.of("/")) &&
+                pageDAO.countBySite(siteEntity) == 1 ?
                 StatisticsServiceImpl.ERRORS[0] :
                 StatisticsServiceImpl.ERRORS[1].
                         concat(" на страниц").
@@ -258,23 +328,10 @@ public class IndexingServiceImpl implements IndexingService{
         siteEntity.setLastError(lastError);
         siteEntity.setStatus(status);
         siteEntity.setStatusTime(new Date());
+        siteCounters.writeTo(siteEntity);
         return siteDAO.update(siteEntity);
     }
 
-    private void shutdownIfIndexingIsOver() {
-        if (!siteDAO.containsByStatus(StatusType.INDEXING)) {
-            shutdownForkJoinPool();
-            executorService.shutdown();
-            hasIndexingStarted = false;
-        }
-    }
-
-    private void shutdownForkJoinPool() {
-        do {
-            pool.shutdownNow();
-        } while (isPoolRunning());
-    }
-
     private HashMap<String, String> splitIndexUrl(String indexURL) {
         String regexHomeUrl = "https?://[^,\\s/]+";
         Pattern pattern = Pattern.compile(regexHomeUrl);
@@ -0,0 +1,167 @@
+package searchengine.services;
+
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.MarkerManager;
+import org.springframework.stereotype.Component;
+import searchengine.model.LemmaEntity;
+import searchengine.repositories.IndexDAO;
+import searchengine.repositories.LemmaDAO;
+import searchengine.repositories.SiteDAO;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+@RequiredArgsConstructor
+public class InvertedIndex {
+
+    private final Logger logger = LogManager.getLogger(InvertedIndex.class);
+    private final Marker historyMarker = MarkerManager.getMarker("history");
+
+    private final LemmaDAO lemmaDAO;
+    private final IndexDAO indexDAO;
+    private final SiteDAO siteDAO;
+    private final SiteCounters siteCounters;
+
+    private final Map<String, Map<Integer, Term>> termsByLemma =
+            new ConcurrentHashMap<>();
+    private final Map<Integer, Term> termsById = new ConcurrentHashMap<>();
+    private final Set<Integer> hiddenSiteIds = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void load() {
+        long start = System.currentTimeMillis();
+        AtomicLong postings = new AtomicLong();
+
+        hiddenSiteIds.addAll(siteDAO.findInactiveSiteIds(null));
+
+        lemmaDAO.forEachLemma(row -> getOrCreateTerm(
+                ((Number) row[0]).intValue(),
+                ((Number) row[1]).intValue(),
+                (String) row[2]));
+
+        indexDAO.forEachIndex(row -> {
+            Term term = termsById.get(((Number) row[0]).intValue());
+            if (term != null && term.getPostings().add(((Number) row[1]).intValue(),
+                    ((Number) row[2]).intValue())) {
+                siteCounters.addIndexes(term.getSiteId(), 1);
+                postings.incrementAndGet();
+            }
+        });
+
+        logger.info(historyMarker,
+                "Поисковый индекс загружен: {} лемм, {} записей за {} мс",
+                termsById.size(), postings.get(),
+                System.currentTimeMillis() - start);
+    }
+
+    public List<Term> findTerms(String lemma, Integer siteId) {
+        Map<Integer, Term> termsBySite = termsByLemma.get(lemma);
+        if (termsBySite == null) {
+            return Collections.emptyList();
+        }
+        if (siteId == null) {
+            return termsBySite.values().stream().
+                    filter(term -> !hiddenSiteIds.contains(term.getSiteId())).
+                    toList();
+        }
+        Term term = termsBySite.get(siteId);
+        return term == null ? Collections.emptyList() : List.of(term);
+    }
+
+    public void addPage(int siteId, int pageId,
+                        Map<LemmaEntity, Integer> lemmaEntities) {
+        lemmaEntities.forEach((lemmaEntity, rank) -> {
+            if (getOrCreateTerm(lemmaEntity.getId(), siteId, lemmaEntity.getLemma())
+                    .getPostings().add(pageId, rank)) {
+                siteCounters.addIndexes(siteId, 1);
+            }
+        });
+    }
+
+    public void removePage(int pageId, Collection<Integer> lemmaIds) {
+        lemmaIds.forEach(lemmaId -> {
+            Term term = termsById.get(lemmaId);
+            if (term == null) {
+                return;
+            }
+            PostingList postings = term.getPostings();
+            synchronized (postings) {
+                if (!postings.remove(pageId)) {
+                    return;
+                }
+                siteCounters.addIndexes(term.getSiteId(), -1);
+                if (postings.size() == 0) {
+                    removeTerm(term);
+                }
+            }
+        });
+    }
+
+    public boolean isVisible(int siteId) {
+        return !hiddenSiteIds.contains(siteId);
+    }
+
+    public void hideSite(int siteId) {
+        hiddenSiteIds.add(siteId);
+    }
+
+    public void showSite(int siteId) {
+        hiddenSiteIds.remove(siteId);
+    }
+
+    public void removeSite(int siteId) {
+        hiddenSiteIds.remove(siteId);
+        termsById.values().stream()
+                .filter(term -> term.getSiteId() == siteId)
+                .toList()
+                .forEach(this::removeTerm);
+    }
+
+    private Term getOrCreateTerm(int lemmaId, int siteId, String lemma) {
+        return termsById.computeIfAbsent(lemmaId, id -> {
+            Term term = new Term(id, siteId, lemma);
+            termsByLemma.computeIfAbsent(lemma, l -> new ConcurrentHashMap<>())
+                    .put(siteId, term);
+            siteCounters.addLemmas(siteId, 1);
+            return term;
+        });
+    }
+
+    private void removeTerm(Term term) {
+        if (!termsById.remove(term.getLemmaId(), term)) {
+            return;
+        }
+        siteCounters.addLemmas(term.getSiteId(), -1);
+        termsByLemma.computeIfPresent(term.getLemma(), (lemma, termsBySite) -> {
+            termsBySite.remove(term.getSiteId(), term);
+            return termsBySite.isEmpty() ? null : termsBySite;
+        });
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class Term implements Comparable<Term> {
+        private final int lemmaId;
+        private final int siteId;
+        private final String lemma;
+        private final PostingList postings = new PostingList();
+
+        public int getFrequency() {
+            return postings.size();
+        }
+
+        @Override
+        public int compareTo(Term that) {
+            int compareFrequency = Integer.compare(getFrequency(), that.getFrequency());
+            return compareFrequency != 0 ?
+                    compareFrequency : lemma.compareTo(that.lemma);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package searchengine.services;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public class KnownPage {
+    private final int id;
+    private final String etag;
+    private final String lastModified;
+    private final byte[] contentHash;
+}
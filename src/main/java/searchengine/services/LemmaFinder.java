@@ -1,72 +1,59 @@
 package searchengine.services;
 
+import lombok.RequiredArgsConstructor;
 import org.apache.lucene.morphology.LuceneMorphology;
 import org.apache.lucene.morphology.russian.RussianLuceneMorphology;
-import org.jsoup.nodes.Document;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import searchengine.model.LemmaEntity;
-
+import searchengine.dto.indexing.MorphologyCacheStatus;
 
 import java.io.IOException;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Component
 public class LemmaFinder {
     private final LuceneMorphology luceneMorphology;
     private static final String WORD_TYPE_REGEX = "\\W\\w&&[^А-я\\s]";
     private static final String[] PARTICLES_Names = new String[]{"МЕЖД", "ПРЕДЛ", "СОЮЗ"};
+    private static final int MIN_WORD_LENGTH = 3;
+    private final WordFormCache<WordForm> wordFormCache;
 
     @Autowired
-    public LemmaFinder() throws IOException{
+    public LemmaFinder(@Value("${indexing-settings.morphology-cache-size:100000}")
+                       int morphologyCacheSize) throws IOException{
         this.luceneMorphology = new RussianLuceneMorphology();
+        this.wordFormCache = new WordFormCache<>(morphologyCacheSize);
     }
 
-    protected HashMap<String, Integer> collectLemmas(String text) {
-        List<String> words = splittingTextByWords(text);
-        HashMap<String, Integer> mapOfLemmasAndFrequencies = new HashMap<>(words.size());
+    protected HashMap<String, WordPositions> collectLemmaPositions(CharSequence text) {
+        HashMap<String, WordPositions> mapOfLemmasAndPositions = new HashMap<>();
 
-        for (String word : words) {
-            List<String> normalForms = getNormalForms(word);
-            if (normalForms.size() == 0) {
-                continue;
+        CyrillicTokenizer tokenizer = new CyrillicTokenizer(text, MIN_WORD_LENGTH);
+        while (tokenizer.next()) {
+            List<String> normalForms = getWordForm(tokenizer).normalForms;
+            if (!normalForms.isEmpty()) {
+                mapOfLemmasAndPositions.computeIfAbsent(normalForms.get(0),
+                                lemma -> new WordPositions()).
+                        add(tokenizer.getStart(), tokenizer.length());
             }
-            String normalWord = normalForms.get(0);
-            mapOfLemmasAndFrequencies.put(normalWord,
-                    mapOfLemmasAndFrequencies.getOrDefault(normalWord, 0) + 1);
         }
 
-        return mapOfLemmasAndFrequencies;
+        return mapOfLemmasAndPositions;
     }
 
-    protected List<LemmaEntity> collectLemmasEntity(String text) {
-        List<String> words = splittingTextByWords(text);
-
-        List<LemmaEntity> lemmaEntities = new ArrayList<>(words.size());
+    protected List<String> getUniqueWords(CharSequence text) {
+        Set<String> uniqueWords = new LinkedHashSet<>();
 
-        for (String word : words) {
-            List<String> normalForms = getNormalForms(word);
-            if (normalForms.size() > 0) {
-                LemmaEntity lemmaEntity = new LemmaEntity();
-                lemmaEntity.setLemma(normalForms.get(0));
-                lemmaEntity.setWord(word);
-                lemmaEntities.add(lemmaEntity);
+        CyrillicTokenizer tokenizer = new CyrillicTokenizer(text, MIN_WORD_LENGTH);
+        while (tokenizer.next()) {
+            WordForm wordForm = getWordForm(tokenizer);
+            if (wordForm.correct && !wordForm.particle) {
+                uniqueWords.add(tokenizer.toString());
             }
         }
 
-        return lemmaEntities;
-    }
-
-
-
-    protected List<String> getUniqueWords(String text) {
-        List<String> words = splittingTextByWords(text.toLowerCase());
-        return words.stream().filter(word ->{
-            List<String> wordBaseForms = luceneMorphology.getMorphInfo(word);
-            return !word.isEmpty() && isCorrectWordForm(word)
-                    && !anyWordBaseBelongToParticle(wordBaseForms);
-        }).distinct().collect(Collectors.toList());
+        return new ArrayList<>(uniqueWords);
     }
 
     protected List<String> getNormalForms(String word) {
@@ -74,25 +61,33 @@ public class LemmaFinder {
             return Collections.emptyList();
         }
 
-        String lowerCaseWord = word.toLowerCase();
-
-        List<String> wordBaseForms = luceneMorphology.
-                getMorphInfo(lowerCaseWord);
-        if (anyWordBaseBelongToParticle(wordBaseForms)) {
-            return Collections.emptyList();
-        }
+        return getWordForm(word.toLowerCase()).normalForms;
+    }
 
-        List<String> normalForms = luceneMorphology.
-                getNormalForms(lowerCaseWord);
-        if (normalForms.isEmpty()) {
-            return Collections.emptyList();
-        }
+    public MorphologyCacheStatus getCacheStatus() {
+        MorphologyCacheStatus status = new MorphologyCacheStatus();
+        long hits = wordFormCache.getHits();
+        long misses = wordFormCache.getMisses();
+        status.setSize(wordFormCache.getSize());
+        status.setMaxSize(wordFormCache.getMaxSize());
+        status.setHits(hits);
+        status.setMisses(misses);
+        status.setHitRate(hits + misses == 0 ? 0 : (float) hits / (hits + misses));
+        return status;
+    }
 
-        return normalForms;
+    private WordForm getWordForm(CharSequence lowerCaseWord) {
+        return wordFormCache.get(lowerCaseWord, this::analyzeWordForm);
     }
 
-    protected String htmlCodeToTextWhitRussianWords(Document htmlCode) {
-        return htmlCode.text().replaceAll("[^А-яЁё]+", " ");
+    private WordForm analyzeWordForm(String lowerCaseWord) {
+        List<String> wordBaseForms = luceneMorphology.getMorphInfo(lowerCaseWord);
+        boolean correct = isCorrectWordForm(wordBaseForms);
+        if (anyWordBaseBelongToParticle(wordBaseForms)) {
+            return new WordForm(Collections.emptyList(), true, correct);
+        }
+        return new WordForm(List.copyOf(luceneMorphology.
+                getNormalForms(lowerCaseWord)), false, correct);
     }
 
     private boolean anyWordBaseBelongToParticle(List<String> wordBaseForms) {
@@ -108,13 +103,7 @@ public class LemmaFinder {
         return false;
     }
 
-    private List<String> splittingTextByWords(String text) {
-        return Arrays.stream(text.trim().split("\\s+")).filter(word ->
-                    word.length() > 2).toList();
-    }
-
-    private boolean isCorrectWordForm(String word) {
-        List<String> wordInfo = luceneMorphology.getMorphInfo(word);
+    private boolean isCorrectWordForm(List<String> wordInfo) {
         for (String morphInfo : wordInfo) {
             if (morphInfo.matches(WORD_TYPE_REGEX)) {
                 return false;
@@ -122,5 +111,11 @@ public class LemmaFinder {
         }
         return true;
     }
-}
 
+    @RequiredArgsConstructor
+    private static class WordForm {
+        private final List<String> normalForms;
+        private final boolean particle;
+        private final boolean correct;
+    }
+}
@@ -0,0 +1,192 @@
+package searchengine.services;
+
+import lombok.RequiredArgsConstructor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.Session;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import searchengine.model.SiteEntity;
+import searchengine.repositories.LemmaDAO;
+import searchengine.repositories.SiteDAO;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+@Component
+@RequiredArgsConstructor
+public class LemmaFrequencyAggregator {
+
+    private final Logger logger = LogManager.getLogger(LemmaFrequencyAggregator.class);
+
+    private final LemmaDAO lemmaDAO;
+    private final SiteDAO siteDAO;
+
+    private final Map<Integer, SiteLemmas> siteLemmasMap = new ConcurrentHashMap<>();
+
+    public HashMap<String, Integer> getLemmaIds(Session session, SiteEntity siteEntity,
+                                                Collection<String> lemmas) {
+
+        SiteLemmas siteLemmas = getSiteLemmas(siteEntity.getId());
+        HashMap<String, Integer> lemmaIds = new HashMap<>(lemmas.size());
+        List<String> newLemmas = new ArrayList<>();
+        lemmas.forEach(lemma -> {
+            Integer lemmaId = siteLemmas.lemmaIds.get(lemma);
+            if (lemmaId == null) {
+                newLemmas.add(lemma);
+            } else {
+                lemmaIds.put(lemma, lemmaId);
+            }
+        });
+
+        if (!newLemmas.isEmpty()) {
+            lemmaIds.putAll(lemmaDAO.saveAndGetIds(session, siteEntity, newLemmas));
+        }
+        return lemmaIds;
+    }
+
+    public void lockSites(Collection<Integer> siteIds) {
+        siteIds.stream().sorted().
+                forEach(siteId -> getSiteLemmas(siteId).lock.readLock().lock());
+    }
+
+    public void unlockSites(Collection<Integer> siteIds) {
+        siteIds.forEach(siteId -> getSiteLemmas(siteId).lock.readLock().unlock());
+    }
+
+    public void increment(int siteId, Map<String, Integer> lemmaIds) {
+        SiteLemmas siteLemmas = getSiteLemmas(siteId);
+        siteLemmas.lemmaIds.putAll(lemmaIds);
+        lemmaIds.values().forEach(lemmaId -> siteLemmas.add(lemmaId, 1));
+        siteLemmas.changed.set(true);
+    }
+
+    public void decrement(int siteId, Collection<Integer> lemmaIds) {
+        SiteLemmas siteLemmas = getSiteLemmas(siteId);
+        lemmaIds.forEach(lemmaId -> siteLemmas.add(lemmaId, -1));
+        siteLemmas.decrementedLemmaIds.addAll(lemmaIds);
+        siteLemmas.changed.set(true);
+    }
+
+    @Scheduled(fixedDelayString = "${indexing-settings.lemma-flush-delay:5000}")
+    public void flushAll() {
+        List<Integer> changedSiteIds = new ArrayList<>();
+        siteLemmasMap.forEach((siteId, siteLemmas) -> {
+            if (siteLemmas.changed.getAndSet(false)) {
+                flushFrequencies(siteLemmas);
+                changedSiteIds.add(siteId);
+            }
+        });
+        if (changedSiteIds.isEmpty()) {
+            return;
+        }
+
+        Consumer<Session> update = session ->
+                siteDAO.updateStatusTime(session, changedSiteIds);
+        try {
+            siteDAO.inSessionWithTransaction(update);
+        } catch (RuntimeException e) {
+            logger.error("При обновлении времени статуса сайтов {}" +
+                    " возникли ошибки: {}", changedSiteIds, e);
+        }
+    }
+
+    public void flushAndDeleteUnused(int siteId) {
+        SiteLemmas siteLemmas = siteLemmasMap.get(siteId);
+        if (siteLemmas == null) {
+            return;
+        }
+        siteLemmas.lock.writeLock().lock();
+        try {
+            flushFrequencies(siteLemmas);
+
+            List<Integer> lemmaIds = new ArrayList<>(siteLemmas.decrementedLemmaIds);
+            if (lemmaIds.isEmpty()) {
+                return;
+            }
+            siteLemmas.decrementedLemmaIds.removeAll(lemmaIds);
+            siteLemmas.lemmaIds.values().removeAll(lemmaIds);
+
+            Consumer<Session> delete = session -> lemmaDAO.deleteUnused(session, lemmaIds);
+            try {
+                lemmaDAO.inSessionWithTransaction(delete);
+            } catch (RuntimeException e) {
+                logger.error("При удалении неиспользуемых лемм сайта {}" +
+                        " возникли ошибки: {}", siteId, e);
+            }
+        } finally {
+            siteLemmas.lock.writeLock().unlock();
+        }
+    }
+
+    public void recomputeFrequencies(int siteId) {
+        SiteLemmas siteLemmas = getSiteLemmas(siteId);
+        siteLemmas.lock.writeLock().lock();
+        try {
+            siteLemmas.frequencies.clear();
+            siteLemmas.decrementedLemmaIds.clear();
+            Consumer<Session> recompute = session ->
+                    lemmaDAO.recomputeFrequencies(session, siteId);
+            lemmaDAO.inSessionWithTransaction(recompute);
+        } finally {
+            siteLemmas.lock.writeLock().unlock();
+        }
+    }
+
+    public void removeSite(int siteId) {
+        siteLemmasMap.remove(siteId);
+    }
+
+    private void flushFrequencies(SiteLemmas siteLemmas) {
+        Map<Integer, List<Integer>> lemmaIdsByValue = new HashMap<>();
+        siteLemmas.frequencies.forEach((lemmaId, frequency) -> {
+            int value = frequency.getAndSet(0);
+            if (value != 0) {
+                lemmaIdsByValue.computeIfAbsent(value, v -> new ArrayList<>()).
+                        add(lemmaId);
+            }
+        });
+        if (lemmaIdsByValue.isEmpty()) {
+            return;
+        }
+
+        Function<Session, Boolean> update = session -> {
+            lemmaIdsByValue.forEach((value, lemmaIds) ->
+                    lemmaDAO.addToFrequencies(session, value, lemmaIds));
+            return true;
+        };
+        Object isUpdated = null;
+        try {
+            isUpdated = lemmaDAO.fromSessionWithTransaction(update);
+        } catch (RuntimeException e) {
+            logger.error("При обновлении частот лемм возникли ошибки: {}", e);
+        }
+        if (isUpdated == null) {
+            lemmaIdsByValue.forEach((value, lemmaIds) ->
+                    lemmaIds.forEach(lemmaId -> siteLemmas.add(lemmaId, value)));
+            siteLemmas.changed.set(true);
+        }
+    }
+
+    private SiteLemmas getSiteLemmas(int siteId) {
+        return siteLemmasMap.computeIfAbsent(siteId, id -> new SiteLemmas());
+    }
+
+    private static class SiteLemmas {
+        private final Map<String, Integer> lemmaIds = new ConcurrentHashMap<>();
+        private final Map<Integer, AtomicInteger> frequencies = new ConcurrentHashMap<>();
+        private final Set<Integer> decrementedLemmaIds = ConcurrentHashMap.newKeySet();
+        private final AtomicBoolean changed = new AtomicBoolean();
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        private void add(int lemmaId, int value) {
+            frequencies.computeIfAbsent(lemmaId, id -> new AtomicInteger()).
+                    addAndGet(value);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package searchengine.services;
+
+import lombok.Getter;
+import org.jsoup.internal.StringUtil;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.select.NodeTraversor;
+import org.jsoup.select.NodeVisitor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+class PageContentExtractor implements NodeVisitor {
+    private final boolean collectLinks;
+    private final StringBuilder text = new StringBuilder();
+    private final StringBuilder title = new StringBuilder();
+    private final Set<String> links = new LinkedHashSet<>();
+
+    private Element titleElement;
+    private boolean titleFound;
+
+    private PageContentExtractor(boolean collectLinks) {
+        this.collectLinks = collectLinks;
+    }
+
+    static PageContentExtractor extract(Document document, boolean collectLinks) {
+        PageContentExtractor extractor = new PageContentExtractor(collectLinks);
+        NodeTraversor.traverse(extractor, document);
+        return extractor;
+    }
+
+    String getText() {
+        return text.toString().trim();
+    }
+
+    String getTitle() {
+        return StringUtil.normaliseWhitespace(title.toString()).trim();
+    }
+
+    List<String> getLinks() {
+        return new ArrayList<>(links);
+    }
+
+    @Override
+    public void head(Node node, int depth) {
+        if (node instanceof TextNode textNode) {
+            String wholeText = textNode.getWholeText();
+            StringUtil.appendNormalisedWhitespace(text, wholeText,
+                    lastCharIsWhitespace(text));
+            if (titleElement != null) {
+                title.append(wholeText);
+            }
+        } else if (node instanceof Element element) {
+            if (text.length() > 0 && (element.isBlock() ||
+                    element.normalName().equals("br")) && !lastCharIsWhitespace(text)) {
+                text.append(' ');
+            }
+            if (!titleFound && element.normalName().equals("title")) {
+                titleElement = element;
+            } else if (collectLinks && element.normalName().equals("a")) {
+                String href = element.attr("href");
+                if (!href.isEmpty()) {
+                    links.add(href);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void tail(Node node, int depth) {
+        if (!(node instanceof Element element)) {
+            return;
+        }
+        if (element == titleElement) {
+            titleElement = null;
+            titleFound = true;
+        }
+        Node next = node.nextSibling();
+        if (element.isBlock() && (next instanceof TextNode ||
+                next instanceof Element nextElement && !nextElement.tag().formatAsBlock()) &&
+                !lastCharIsWhitespace(text)) {
+            text.append(' ');
+        }
+    }
+
+    private static boolean lastCharIsWhitespace(StringBuilder sb) {
+        return sb.length() != 0 && sb.charAt(sb.length() - 1) == ' ';
+    }
+}
@@ -0,0 +1,221 @@
+package searchengine.services;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlSettings;
+import searchengine.config.JsoupSession;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+@Component
+public class PageFetcher {
+    private static final byte[] EMPTY_BODY = new byte[0];
+    private static final Set<Integer> TRANSIENT_STATUS_CODES =
+            Set.of(408, 425, 429, 500, 502, 503, 504);
+    static final int NETWORK_ERROR_CODE = 599;
+
+    private final Logger logger = LogManager.getLogger(PageFetcher.class);
+
+    private final JsoupSession jsoupSession;
+    private final CrawlSettings crawlSettings;
+    private final HttpClient httpClient;
+
+    public PageFetcher(JsoupSession jsoupSession, CrawlSettings crawlSettings) {
+        this.jsoupSession = jsoupSession;
+        this.crawlSettings = crawlSettings;
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL);
+        if (jsoupSession.getTimeOut() > 0) {
+            builder.connectTimeout(Duration.ofMillis(jsoupSession.getTimeOut()));
+        }
+        this.httpClient = builder.build();
+    }
+
+    public void fetch(PageTask task) {
+        HttpRequest.Builder request = newRequest(task.getUrl(),
+                "text/html,application/xhtml+xml;q=0.9,*/*;q=0.8");
+        KnownPage knownPage = task.getKnownPage();
+        if (knownPage != null && knownPage.getEtag() != null) {
+            request.header("If-None-Match", knownPage.getEtag());
+        }
+        if (knownPage != null && knownPage.getLastModified() != null) {
+            request.header("If-Modified-Since", knownPage.getLastModified());
+        }
+
+        try {
+            HttpResponse<InputStream> response = httpClient.send(request.build(),
+                    HttpResponse.BodyHandlers.ofInputStream());
+            task.setStatusCode(response.statusCode());
+            task.setEtag(response.headers().firstValue("ETag").orElse(null));
+            task.setLastModified(response.headers().firstValue("Last-Modified").
+                    orElse(null));
+            try (InputStream body = decode(response)) {
+                if (response.statusCode() == 304) {
+                    return;
+                }
+                if (response.statusCode() >= 400) {
+                    task.setBody(EMPTY_BODY);
+                    if (TRANSIENT_STATUS_CODES.contains(response.statusCode())) {
+                        task.setTransientError(true);
+                        task.setRetryAfter(getRetryAfter(response));
+                    }
+                    logger.error("при индексации {} возникла ошибка: HTTP {}",
+                            task.getUrl(), response.statusCode());
+                    return;
+                }
+                if (!isAllowedContentType(response)) {
+                    skip(task, "тип содержимого " + response.headers().
+                            firstValue("Content-Type").orElse(""));
+                    return;
+                }
+                int maxBodySize = getMaxBodySize();
+                if (response.headers().firstValueAsLong("Content-Length").
+                        orElse(0) > maxBodySize) {
+                    skip(task, "размер больше " + crawlSettings.getMaxBodySize());
+                    return;
+                }
+                byte[] bytes = body.readNBytes(maxBodySize + 1);
+                if (bytes.length > maxBodySize) {
+                    skip(task, "размер больше " + crawlSettings.getMaxBodySize());
+                    return;
+                }
+                task.setBody(bytes);
+                task.setLocation(response.uri().toString());
+                task.setCharset(getCharset(response));
+                task.setContentHash(MessageDigest.getInstance("SHA-256").digest(bytes));
+            }
+        } catch (HttpTimeoutException e) {
+            task.setStatusCode(408);
+            task.setBody(EMPTY_BODY);
+            task.setTransientError(true);
+            logger.error("при индексации {} возникла ошибка: {}",
+                    task.getUrl(), e);
+        } catch (IOException | IllegalArgumentException e) {
+            task.setStatusCode(NETWORK_ERROR_CODE);
+            task.setBody(EMPTY_BODY);
+            task.setTransientError(true);
+            logger.error("при индексации {} возникла сетевая ошибка: {}",
+                    task.getUrl(), e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            task.setStatusCode(408);
+            task.setBody(EMPTY_BODY);
+        }
+    }
+
+    public InputStream open(String url) throws IOException, InterruptedException {
+        HttpResponse<InputStream> response;
+        try {
+            response = httpClient.send(newRequest(url, "*/*").build(),
+                    HttpResponse.BodyHandlers.ofInputStream());
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e);
+        }
+        if (response.statusCode() != 200) {
+            response.body().close();
+            logger.info("{} недоступен: HTTP {}", url, response.statusCode());
+            return null;
+        }
+        return decode(response);
+    }
+
+    private HttpRequest.Builder newRequest(String url, String accept) {
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .header("Accept", accept)
+                .header("Accept-Encoding", "gzip, deflate")
+                .GET();
+        if (jsoupSession.getUserAgent() != null) {
+            request.header("User-Agent", jsoupSession.getUserAgent());
+        }
+        if (jsoupSession.getReferrer() != null) {
+            request.header("Referer", jsoupSession.getReferrer());
+        }
+        if (jsoupSession.getTimeOut() > 0) {
+            request.timeout(Duration.ofMillis(jsoupSession.getTimeOut()));
+        }
+        return request;
+    }
+
+    private Duration getRetryAfter(HttpResponse<InputStream> response) {
+        String retryAfter = response.headers().firstValue("Retry-After").
+                orElse("").trim();
+        if (retryAfter.isEmpty()) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(retryAfter)));
+        } catch (NumberFormatException e) {
+            try {
+                Duration delay = Duration.between(Instant.now(), ZonedDateTime.
+                        parse(retryAfter, DateTimeFormatter.RFC_1123_DATE_TIME));
+                return delay.isNegative() ? Duration.ZERO : delay;
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
+        }
+    }
+
+    private void skip(PageTask task, String reason) {
+        task.setSkipped(true);
+        logger.info("Страница {} пропущена: {}", task.getUrl(), reason);
+    }
+
+    private boolean isAllowedContentType(HttpResponse<InputStream> response) {
+        String contentType = response.headers().firstValue("Content-Type").orElse("");
+        if (contentType.isBlank()) {
+            return true;
+        }
+        String mimeType = contentType.split(";", 2)[0].trim();
+        return crawlSettings.getAllowedContentTypes().stream().
+                anyMatch(mimeType::equalsIgnoreCase);
+    }
+
+    private int getMaxBodySize() {
+        return (int) Math.min(crawlSettings.getMaxBodySize().toBytes(),
+                Integer.MAX_VALUE - 16);
+    }
+
+    private InputStream decode(HttpResponse<InputStream> response) throws IOException {
+        String encoding = response.headers().firstValue("Content-Encoding").
+                orElse("").trim().toLowerCase(Locale.ROOT);
+        return switch (encoding) {
+            case "gzip", "x-gzip" -> new GZIPInputStream(response.body());
+            case "deflate" -> new InflaterInputStream(response.body());
+            default -> response.body();
+        };
+    }
+
+    private String getCharset(HttpResponse<InputStream> response) {
+        String contentType = response.headers().firstValue("Content-Type").orElse("");
+        for (String parameter : contentType.split(";")) {
+            String[] nameAndValue = parameter.trim().split("=", 2);
+            if (nameAndValue.length == 2 &&
+                    nameAndValue[0].trim().equalsIgnoreCase("charset")) {
+                return nameAndValue[1].trim().replace("\"", "");
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,64 @@
+package searchengine.services;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Getter
+@Setter
+@RequiredArgsConstructor
+public class PageTask {
+    private final SiteCrawl siteCrawl;
+    private final String path;
+
+    private int depth;
+    private boolean forced;
+    private int statusCode;
+    private byte[] body;
+    private String charset;
+    private String location;
+    private boolean skipped;
+    private boolean transientError;
+    private Duration retryAfter;
+    private int attempt;
+    private boolean requeued;
+    private String content;
+    private String title;
+    private String text;
+    private HashMap<String, WordPositions> lemmaPositions;
+    private List<String> links;
+    private KnownPage knownPage;
+    private String etag;
+    private String lastModified;
+    private byte[] contentHash;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final AtomicBoolean done = new AtomicBoolean();
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final AtomicBoolean holdsFetchSlot = new AtomicBoolean(true);
+
+    public void releaseFetchSlot() {
+        if (holdsFetchSlot.compareAndSet(true, false)) {
+            siteCrawl.releaseFetchSlot();
+        }
+    }
+
+    public void done() {
+        releaseFetchSlot();
+        if (done.compareAndSet(false, true)) {
+            siteCrawl.pageDone(path);
+        }
+    }
+
+    public String getUrl() {
+        return siteCrawl.getSiteEntity().getUrl().concat(path);
+    }
+}
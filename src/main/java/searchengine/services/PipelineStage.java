@@ -0,0 +1,135 @@
+package searchengine.services;
+
+import lombok.Getter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import searchengine.config.PipelineSettings.StageSettings;
+import searchengine.dto.indexing.PipelineStageStatus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+public class PipelineStage<T> {
+
+    private final Logger logger = LogManager.getLogger(PipelineStage.class);
+
+    @Getter
+    private final String name;
+    private final int threads;
+    private final int batchSize;
+    private final BlockingDeque<T> queue;
+    private final Handler<T> handler;
+    private final Consumer<T> discard;
+    private final ThreadFactory threadFactory;
+
+    private final List<Thread> workers = new ArrayList<>();
+    private final AtomicInteger activeThreads = new AtomicInteger();
+    private volatile boolean running;
+
+    public PipelineStage(String name, StageSettings settings,
+                         Handler<T> handler, Consumer<T> discard) {
+        this(name, settings, handler, discard, runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public PipelineStage(String name, StageSettings settings,
+                         Handler<T> handler, Consumer<T> discard,
+                         ThreadFactory threadFactory) {
+        this.name = name;
+        this.threads = Math.max(1, settings.getThreads());
+        this.batchSize = Math.max(1, settings.getBatchSize());
+        this.queue = new LinkedBlockingDeque<>(Math.max(1, settings.getQueueCapacity()));
+        this.handler = handler;
+        this.discard = discard;
+        this.threadFactory = threadFactory;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < threads; i++) {
+            Thread worker = threadFactory.newThread(this::work);
+            worker.setName(name + "-" + i);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    public synchronized void stop() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+        workers.clear();
+        List<T> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        rest.forEach(discard);
+    }
+
+    public boolean put(T item, boolean priority) {
+        try {
+            if (priority) {
+                queue.putFirst(item);
+            } else {
+                queue.putLast(item);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            discard.accept(item);
+            return false;
+        }
+    }
+
+    public PipelineStageStatus getStatus() {
+        PipelineStageStatus status = new PipelineStageStatus();
+        status.setName(name);
+        status.setThreads(threads);
+        status.setActiveThreads(activeThreads.get());
+        status.setQueueCapacity(queue.size() + queue.remainingCapacity());
+        status.setQueueDepth(queue.size());
+        return status;
+    }
+
+    private void work() {
+        List<T> batch = new ArrayList<>(batchSize);
+        Set<T> completed = Collections.newSetFromMap(new IdentityHashMap<>());
+        while (running) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, batchSize - 1);
+            activeThreads.incrementAndGet();
+            try {
+                handler.handle(batch, completed::add);
+            } catch (RuntimeException e) {
+                logger.error("На этапе {} возникли ошибки: {}", name, e);
+                batch.stream().
+                        filter(item -> !completed.contains(item)).
+                        forEach(discard);
+            } finally {
+                activeThreads.decrementAndGet();
+                batch.clear();
+                completed.clear();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface Handler<T> {
+        void handle(List<T> batch, Consumer<T> completed);
+    }
+}
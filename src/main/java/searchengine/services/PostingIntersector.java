@@ -0,0 +1,58 @@
+package searchengine.services;
+
+import java.util.List;
+
+public final class PostingIntersector {
+
+    private PostingIntersector() {
+    }
+
+    public static void intersect(List<InvertedIndex.Term> termsByFrequency,
+                                 MatchConsumer consumer) {
+        if (termsByFrequency.isEmpty()) {
+            return;
+        }
+
+        PostingList.Cursor[] cursors = termsByFrequency.stream().
+                map(term -> term.getPostings().cursor()).
+                toArray(PostingList.Cursor[]::new);
+        PostingList.Cursor lead = cursors[0];
+        int[] ranks = new int[cursors.length];
+
+        if (!lead.next()) {
+            return;
+        }
+        int candidate = lead.getPageId();
+
+        nextCandidate:
+        while (true) {
+            for (int i = 1; i < cursors.length; i++) {
+                if (!cursors[i].advance(candidate)) {
+                    return;
+                }
+                if (cursors[i].getPageId() > candidate) {
+                    if (!lead.advance(cursors[i].getPageId())) {
+                        return;
+                    }
+                    candidate = lead.getPageId();
+                    continue nextCandidate;
+                }
+            }
+
+            for (int i = 0; i < cursors.length; i++) {
+                ranks[i] = cursors[i].getRank();
+            }
+            consumer.accept(candidate, ranks);
+
+            if (!lead.next()) {
+                return;
+            }
+            candidate = lead.getPageId();
+        }
+    }
+
+    @FunctionalInterface
+    public interface MatchConsumer {
+        void accept(int pageId, int[] ranks);
+    }
+}
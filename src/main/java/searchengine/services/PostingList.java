@@ -0,0 +1,333 @@
+package searchengine.services;
+
+import java.util.Arrays;
+import java.util.TreeMap;
+
+public class PostingList {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int SKIP_INTERVAL = 64;
+    private static final int MIN_PENDING_TO_MERGE = 64;
+    private static final int PENDING_SHARE_TO_MERGE = 8;
+    private static final int REMOVED = -1;
+
+    private byte[] data = new byte[INITIAL_CAPACITY];
+    private int length;
+    private int encodedCount;
+    private int size;
+    private int lastPageId;
+    private int[] skipPageIds = new int[0];
+    private int[] skipPositions = new int[0];
+    private int skipCount;
+
+    private TreeMap<Integer, Integer> pending;
+    private int[] pendingPageIds = new int[0];
+    private int[] pendingRanks = new int[0];
+    private boolean pendingChanged;
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized boolean add(int pageId, int rank) {
+        if (length == 0 || pageId > lastPageId) {
+            append(pageId, rank);
+            size++;
+            return true;
+        }
+
+        Integer pendingRank = pending == null ? null : pending.get(pageId);
+        boolean isNew = pendingRank == null ?
+                !containsEncoded(pageId) : pendingRank == REMOVED;
+        putPending(pageId, rank);
+        if (isNew) {
+            size++;
+        }
+        mergeIfNeeded();
+        return isNew;
+    }
+
+    public synchronized boolean remove(int pageId) {
+        Integer pendingRank = pending == null ? null : pending.get(pageId);
+        boolean isEncoded = pageId <= lastPageId && containsEncoded(pageId);
+        if (pendingRank == null ? !isEncoded : pendingRank == REMOVED) {
+            return false;
+        }
+        if (isEncoded) {
+            putPending(pageId, REMOVED);
+        } else {
+            pending.remove(pageId);
+            pendingChanged = true;
+        }
+        size--;
+        mergeIfNeeded();
+        return true;
+    }
+
+    public synchronized Cursor cursor() {
+        if (pendingChanged) {
+            updatePendingArrays();
+        }
+        return new Cursor(encodedCursor(), pendingPageIds, pendingRanks);
+    }
+
+    private EncodedCursor encodedCursor() {
+        return new EncodedCursor(data, length, skipPageIds, skipPositions, skipCount);
+    }
+
+    private boolean containsEncoded(int pageId) {
+        EncodedCursor cursor = encodedCursor();
+        return cursor.advance(pageId) && cursor.getPageId() == pageId;
+    }
+
+    private void putPending(int pageId, int rank) {
+        if (pending == null) {
+            pending = new TreeMap<>();
+        }
+        pending.put(pageId, rank);
+        pendingChanged = true;
+    }
+
+    private void updatePendingArrays() {
+        pendingPageIds = new int[pending.size()];
+        pendingRanks = new int[pending.size()];
+        int i = 0;
+        for (var entry : pending.entrySet()) {
+            pendingPageIds[i] = entry.getKey();
+            pendingRanks[i++] = entry.getValue();
+        }
+        pendingChanged = false;
+    }
+
+    private void mergeIfNeeded() {
+        if (pending == null || pending.size() <
+                Math.max(MIN_PENDING_TO_MERGE, size / PENDING_SHARE_TO_MERGE)) {
+            return;
+        }
+        int[] pageIds = new int[size];
+        int[] ranks = new int[size];
+        Cursor cursor = cursor();
+        for (int i = 0; cursor.next(); i++) {
+            pageIds[i] = cursor.getPageId();
+            ranks[i] = cursor.getRank();
+        }
+        pending = null;
+        pendingPageIds = new int[0];
+        pendingRanks = new int[0];
+        pendingChanged = false;
+        encode(pageIds, ranks);
+    }
+
+    private void append(int pageId, int rank) {
+        if (encodedCount > 0 && encodedCount % SKIP_INTERVAL == 0) {
+            addSkip();
+        }
+        ensureCapacity(length + 2 * VarInt.MAX_LENGTH);
+        length = VarInt.write(data, length, pageId - lastPageId);
+        length = VarInt.write(data, length, rank);
+        lastPageId = pageId;
+        encodedCount++;
+    }
+
+    private void addSkip() {
+        if (skipCount == skipPageIds.length) {
+            int capacity = Math.max(4, skipCount * 2);
+            skipPageIds = Arrays.copyOf(skipPageIds, capacity);
+            skipPositions = Arrays.copyOf(skipPositions, capacity);
+        }
+        skipPageIds[skipCount] = lastPageId;
+        skipPositions[skipCount] = length;
+        skipCount++;
+    }
+
+    private void encode(int[] pageIds, int[] ranks) {
+        data = new byte[Math.max(INITIAL_CAPACITY, pageIds.length * 2 * VarInt.MAX_LENGTH)];
+        length = 0;
+        encodedCount = 0;
+        lastPageId = 0;
+        skipPageIds = new int[0];
+        skipPositions = new int[0];
+        skipCount = 0;
+        for (int i = 0; i < pageIds.length; i++) {
+            append(pageIds[i], ranks[i]);
+        }
+        data = Arrays.copyOf(data, Math.max(INITIAL_CAPACITY, length));
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > data.length) {
+            data = Arrays.copyOf(data, Math.max(capacity, data.length * 2));
+        }
+    }
+
+    public static class Cursor {
+        private final EncodedCursor encoded;
+        private final int[] pendingPageIds;
+        private final int[] pendingRanks;
+        private int pendingIndex;
+        private int encodedPageId;
+        private int encodedRank;
+        private boolean started;
+        private int pageId;
+        private int rank;
+
+        private Cursor(EncodedCursor encoded, int[] pendingPageIds, int[] pendingRanks) {
+            this.encoded = encoded;
+            this.pendingPageIds = pendingPageIds;
+            this.pendingRanks = pendingRanks;
+            nextEncoded();
+        }
+
+        public boolean next() {
+            started = true;
+            while (true) {
+                int pendingPageId = pendingIndex < pendingPageIds.length ?
+                        pendingPageIds[pendingIndex] : Integer.MAX_VALUE;
+                if (pendingPageId == Integer.MAX_VALUE && encodedPageId == Integer.MAX_VALUE) {
+                    pageId = Integer.MAX_VALUE;
+                    return false;
+                }
+                if (pendingPageId > encodedPageId) {
+                    pageId = encodedPageId;
+                    rank = encodedRank;
+                    nextEncoded();
+                    return true;
+                }
+                int pendingRank = pendingRanks[pendingIndex++];
+                if (pendingPageId == encodedPageId) {
+                    nextEncoded();
+                }
+                if (pendingRank != REMOVED) {
+                    pageId = pendingPageId;
+                    rank = pendingRank;
+                    return true;
+                }
+            }
+        }
+
+        public boolean advance(int targetPageId) {
+            if (started && pageId >= targetPageId) {
+                return pageId != Integer.MAX_VALUE;
+            }
+            if (encodedPageId < targetPageId) {
+                encodedPageId = encoded.advance(targetPageId) ?
+                        encoded.getPageId() : Integer.MAX_VALUE;
+                encodedRank = encoded.getRank();
+            }
+            if (pendingIndex < pendingPageIds.length &&
+                    pendingPageIds[pendingIndex] < targetPageId) {
+                int position = Arrays.binarySearch(pendingPageIds, pendingIndex,
+                        pendingPageIds.length, targetPageId);
+                pendingIndex = position >= 0 ? position : -position - 1;
+            }
+            return next();
+        }
+
+        public int getPageId() {
+            return pageId;
+        }
+
+        public int getRank() {
+            return rank;
+        }
+
+        private void nextEncoded() {
+            if (encoded.next()) {
+                encodedPageId = encoded.getPageId();
+                encodedRank = encoded.getRank();
+            } else {
+                encodedPageId = Integer.MAX_VALUE;
+            }
+        }
+    }
+
+    private static class EncodedCursor {
+        private final byte[] data;
+        private final int length;
+        private final int[] skipPageIds;
+        private final int[] skipPositions;
+        private final int skipCount;
+        private int position;
+        private int index = -1;
+        private int pageId;
+        private int rank;
+
+        private EncodedCursor(byte[] data, int length, int[] skipPageIds,
+                              int[] skipPositions, int skipCount) {
+            this.data = data;
+            this.length = length;
+            this.skipPageIds = skipPageIds;
+            this.skipPositions = skipPositions;
+            this.skipCount = skipCount;
+        }
+
+        private boolean next() {
+            if (position >= length) {
+                return false;
+            }
+            pageId += readVarInt();
+            rank = readVarInt();
+            index++;
+            return true;
+        }
+
+        private boolean advance(int targetPageId) {
+            if (index >= 0 && pageId >= targetPageId) {
+                return true;
+            }
+            skipTo(targetPageId);
+            while (next()) {
+                if (pageId >= targetPageId) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void skipTo(int targetPageId) {
+            int low = (index + 1) / SKIP_INTERVAL;
+            if (low >= skipCount || skipPageIds[low] >= targetPageId) {
+                return;
+            }
+
+            int step = 1;
+            int high = low + step;
+            while (high < skipCount && skipPageIds[high] < targetPageId) {
+                low = high;
+                step <<= 1;
+                high = low + step;
+            }
+            high = Math.min(high, skipCount);
+            while (high - low > 1) {
+                int middle = (low + high) >>> 1;
+                if (skipPageIds[middle] < targetPageId) {
+                    low = middle;
+                } else {
+                    high = middle;
+                }
+            }
+
+            position = skipPositions[low];
+            pageId = skipPageIds[low];
+            index = (low + 1) * SKIP_INTERVAL - 1;
+        }
+
+        private int getPageId() {
+            return pageId;
+        }
+
+        private int getRank() {
+            return rank;
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = data[position++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+    }
+}
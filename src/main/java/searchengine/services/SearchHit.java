@@ -0,0 +1,22 @@
+package searchengine.services;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+@Getter
+@RequiredArgsConstructor
+public class SearchHit implements Comparable<SearchHit> {
+    private final int pageId;
+    private final int absoluteRelevance;
+    private final List<InvertedIndex.Term> terms;
+    private final int[] ranks;
+
+    @Override
+    public int compareTo(SearchHit that) {
+        int compareRelevance = Integer.compare(that.absoluteRelevance, absoluteRelevance);
+        return compareRelevance != 0 ?
+                compareRelevance : Integer.compare(pageId, that.pageId);
+    }
+}
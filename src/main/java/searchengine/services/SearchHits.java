@@ -0,0 +1,50 @@
+package searchengine.services;
+
+import lombok.Getter;
+
+import java.util.*;
+
+public class SearchHits {
+    private final int capacity;
+    private final PriorityQueue<SearchHit> heap;
+
+    @Getter
+    private int count;
+    @Getter
+    private int maxAbsoluteRelevance;
+
+    public SearchHits(int capacity) {
+        this.capacity = capacity;
+        this.heap = new PriorityQueue<>(Comparator.reverseOrder());
+    }
+
+    public void add(int pageId, int[] ranks, List<InvertedIndex.Term> terms) {
+        int absoluteRelevance = 0;
+        for (int rank : ranks) {
+            absoluteRelevance += rank;
+        }
+        count++;
+        maxAbsoluteRelevance = Math.max(maxAbsoluteRelevance, absoluteRelevance);
+
+        if (capacity == 0) {
+            return;
+        }
+        SearchHit worst = heap.peek();
+        if (heap.size() == capacity && worst != null &&
+                (worst.getAbsoluteRelevance() > absoluteRelevance ||
+                        (worst.getAbsoluteRelevance() == absoluteRelevance &&
+                                worst.getPageId() < pageId))) {
+            return;
+        }
+        heap.add(new SearchHit(pageId, absoluteRelevance, terms, ranks.clone()));
+        if (heap.size() > capacity) {
+            heap.poll();
+        }
+    }
+
+    public List<SearchHit> getTopHits() {
+        List<SearchHit> topHits = new ArrayList<>(heap);
+        Collections.sort(topHits);
+        return topHits;
+    }
+}
@@ -0,0 +1,20 @@
+package searchengine.services;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class SiteCheckpoint {
+    private int siteId;
+    private String url;
+    private boolean incremental;
+    private int maxSavedPageId;
+    private int crawledPages;
+    private List<String> queuedPaths = new ArrayList<>();
+    private List<String> inFlightPaths = new ArrayList<>();
+    private Map<String, Integer> pathDepths = new HashMap<>();
+}
@@ -0,0 +1,109 @@
+package searchengine.services;
+
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import searchengine.model.SiteEntity;
+import searchengine.repositories.PageDAO;
+import searchengine.repositories.SiteDAO;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+@RequiredArgsConstructor
+public class SiteCounters {
+
+    private final SiteDAO siteDAO;
+    private final PageDAO pageDAO;
+
+    private final Map<Integer, Counters> countersBySite = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+
+    @PostConstruct
+    public void load() {
+        siteDAO.findPageCounts().forEach(row -> {
+            Counters counters = getCounters(((Number) row[0]).intValue());
+            counters.pages.set(((Number) row[1]).intValue());
+            counters.reconciled = true;
+        });
+    }
+
+    public void reconcile(SiteEntity siteEntity) {
+        Counters counters = getCounters(siteEntity.getId());
+        counters.pages.set((int) pageDAO.countBySite(siteEntity));
+        counters.reconciled = true;
+        version.incrementAndGet();
+    }
+
+    public Counters get(int siteId) {
+        return getCounters(siteId);
+    }
+
+    public void addPages(int siteId, int delta) {
+        getCounters(siteId).pages.addAndGet(delta);
+        version.incrementAndGet();
+    }
+
+    public void addLemmas(int siteId, int delta) {
+        getCounters(siteId).lemmas.addAndGet(delta);
+        version.incrementAndGet();
+    }
+
+    public void addIndexes(int siteId, int delta) {
+        getCounters(siteId).indexes.addAndGet(delta);
+        version.incrementAndGet();
+    }
+
+    public void remove(int siteId) {
+        countersBySite.remove(siteId);
+        version.incrementAndGet();
+    }
+
+    public void writeTo(SiteEntity siteEntity) {
+        Counters counters = getCounters(siteEntity.getId());
+        siteEntity.setPageCount(counters.getPages());
+        siteEntity.setLemmaCount(counters.getLemmas());
+        siteEntity.setIndexCount(counters.getIndexes());
+        version.incrementAndGet();
+    }
+
+    public Set<Integer> getSiteIds() {
+        return Set.copyOf(countersBySite.keySet());
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    private Counters getCounters(int siteId) {
+        return countersBySite.computeIfAbsent(siteId, id -> new Counters());
+    }
+
+    public static class Counters {
+        private final AtomicInteger pages = new AtomicInteger();
+        private final AtomicInteger lemmas = new AtomicInteger();
+        private final AtomicInteger indexes = new AtomicInteger();
+        private volatile boolean reconciled;
+
+        public int getPages() {
+            return Math.max(0, pages.get());
+        }
+
+        public int getLemmas() {
+            return Math.max(0, lemmas.get());
+        }
+
+        public int getIndexes() {
+            return Math.max(0, indexes.get());
+        }
+
+        public boolean isReconciled() {
+            return reconciled;
+        }
+    }
+}
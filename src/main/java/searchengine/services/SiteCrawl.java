@@ -0,0 +1,330 @@
+package searchengine.services;
+
+import lombok.Getter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import searchengine.model.SiteEntity;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SiteCrawl {
+    private final Logger logger = LogManager.getLogger(SiteCrawl.class);
+
+    @Getter
+    private final SiteEntity siteEntity;
+    @Getter
+    private final boolean followLinks;
+    @Getter
+    private final boolean incremental;
+    @Getter
+    private final int weight;
+    @Getter
+    private final CrawlBudget budget;
+    @Getter
+    private final HostThrottle throttle;
+
+    private final CrawlFrontier frontier;
+    private final Queue<String> priorityPaths = new ConcurrentLinkedQueue<>();
+    private final DelayQueue<RetryTask> retries = new DelayQueue<>();
+    private final Map<String, KnownPage> knownPages = new ConcurrentHashMap<>();
+    private final Map<String, Integer> inFlightPaths = new HashMap<>();
+    private final AtomicInteger pendingPages = new AtomicInteger();
+    private final AtomicInteger maxSavedPageId = new AtomicInteger();
+    private final CompletableFuture<SiteCrawl> completion = new CompletableFuture<>();
+    @Getter
+    private volatile boolean cancelled;
+    @Getter
+    private volatile boolean paused;
+    @Getter
+    private volatile boolean budgetExhausted;
+    private int dispatchedPages;
+
+    private double virtualTime;
+
+    public SiteCrawl(SiteEntity siteEntity, boolean followLinks, boolean incremental,
+                     int weight, CrawlBudget budget, UrlCanonicalizer urlCanonicalizer,
+                     int initialRequests, int maxRequests) {
+        this.siteEntity = siteEntity;
+        this.followLinks = followLinks;
+        this.incremental = incremental;
+        this.weight = Math.max(1, weight);
+        this.budget = budget;
+        this.throttle = new HostThrottle(initialRequests, maxRequests);
+        this.frontier = new CrawlFrontier(budget.getMaxDepth(), urlCanonicalizer);
+    }
+
+    void seed(Collection<String> paths) {
+        frontier.seed(paths);
+    }
+
+    String canonicalize(String path) {
+        return frontier.canonicalize(path);
+    }
+
+    void addKnownPage(String path, KnownPage knownPage) {
+        knownPages.put(frontier.canonicalize(path), knownPage);
+    }
+
+    Collection<String> getKnownPaths() {
+        return knownPages.keySet();
+    }
+
+    KnownPage getKnownPage(String path) {
+        return knownPages.get(frontier.canonicalize(path));
+    }
+
+    KnownPage takeKnownPage(String path) {
+        return knownPages.remove(frontier.canonicalize(path));
+    }
+
+    boolean skipUnchanged(String path) {
+        if (!frontier.markVisited(path)) {
+            return false;
+        }
+        knownPages.remove(frontier.canonicalize(path));
+        return true;
+    }
+
+    void hold() {
+        pendingPages.incrementAndGet();
+    }
+
+    void releaseHold() {
+        if (pendingPages.decrementAndGet() == 0) {
+            finish();
+        }
+    }
+
+    synchronized void restoreDispatchedPages(int pages) {
+        dispatchedPages = pages;
+    }
+
+    int start(Map<String, Integer> pathDepths) {
+        int offeredPaths = 0;
+        for (Map.Entry<String, Integer> pathDepth : pathDepths.entrySet()) {
+            if (offer(pathDepth.getKey(), pathDepth.getValue())) {
+                offeredPaths++;
+            }
+        }
+        if (offeredPaths == 0 && pendingPages.get() == 0) {
+            finish();
+        }
+        return offeredPaths;
+    }
+
+    boolean offer(String path, int depth) {
+        if (budgetExhausted) {
+            return false;
+        }
+        pendingPages.incrementAndGet();
+        if (frontier.offer(path, depth)) {
+            return true;
+        }
+        pendingPages.decrementAndGet();
+        return false;
+    }
+
+    synchronized boolean offerPriority(String path) {
+        if (cancelled || paused || completion.isDone()) {
+            return false;
+        }
+        String canonicalPath = frontier.canonicalize(path);
+        if (inFlightPaths.containsKey(canonicalPath) ||
+                priorityPaths.contains(canonicalPath) ||
+                retries.stream().anyMatch(retryTask ->
+                        retryTask.task.getPath().equals(canonicalPath))) {
+            return true;
+        }
+        if (!frontier.remove(canonicalPath)) {
+            pendingPages.incrementAndGet();
+        }
+        priorityPaths.add(canonicalPath);
+        frontier.markVisited(canonicalPath);
+        return true;
+    }
+
+    synchronized void retry(PageTask task, long delayNanos) {
+        inFlightPaths.remove(task.getPath());
+        retries.add(new RetryTask(task, System.nanoTime() + delayNanos));
+        finishIfPausedAndIdle();
+    }
+
+    synchronized PageTask poll() {
+        if (cancelled || paused) {
+            return null;
+        }
+        if (budget.isTimeOver()) {
+            exhaustBudget("истекло время обхода " + budget.getTimeLimit(), true);
+            return null;
+        }
+        String priorityPath = priorityPaths.poll();
+        if (priorityPath != null) {
+            PageTask task = new PageTask(this, priorityPath);
+            task.setForced(true);
+            inFlightPaths.put(priorityPath, 0);
+            return task;
+        }
+        RetryTask retryTask = retries.poll();
+        PageTask task = retryTask != null ? retryTask.task : null;
+        if (task == null && budget.isPageLimitReached(dispatchedPages)) {
+            exhaustBudget("достигнут предел в " + budget.getMaxPages() + " страниц", false);
+        } else if (task == null) {
+            CrawlFrontier.QueuedPath queuedPath = frontier.poll();
+            if (queuedPath != null) {
+                task = new PageTask(this, queuedPath.getPath());
+                task.setDepth(queuedPath.getDepth());
+                dispatchedPages++;
+            }
+        }
+        if (task != null) {
+            inFlightPaths.put(task.getPath(), task.getDepth());
+        }
+        return task;
+    }
+
+    private void exhaustBudget(String reason, boolean dropRetries) {
+        if (!budgetExhausted) {
+            budgetExhausted = true;
+            logger.info("Обход сайта {} остановлен: {}", siteEntity.getUrl(), reason);
+        }
+        int droppedPages = frontier.clear();
+        if (dropRetries) {
+            droppedPages += retries.size();
+            retries.clear();
+        }
+        if (droppedPages > 0 && pendingPages.addAndGet(-droppedPages) == 0) {
+            finish();
+        }
+    }
+
+    boolean hasQueuedPaths() {
+        return !cancelled && !paused &&
+                !(priorityPaths.isEmpty() && frontier.isEmpty() && retries.isEmpty());
+    }
+
+    boolean tryAcquireFetchSlot(int budget) {
+        return throttle.tryAcquire(budget);
+    }
+
+    double getVirtualTime(double systemVirtualTime) {
+        return Math.max(virtualTime, systemVirtualTime);
+    }
+
+    double advanceVirtualTime(double systemVirtualTime) {
+        double startTime = getVirtualTime(systemVirtualTime);
+        virtualTime = startTime + 1.0 / weight;
+        return startTime;
+    }
+
+    void releaseFetchSlot() {
+        throttle.release();
+    }
+
+    void pageSaved(int pageId) {
+        maxSavedPageId.accumulateAndGet(pageId, Math::max);
+    }
+
+    void pageDone(String path) {
+        synchronized (this) {
+            inFlightPaths.remove(path);
+            finishIfPausedAndIdle();
+        }
+        if (pendingPages.decrementAndGet() == 0) {
+            finish();
+        }
+    }
+
+    public synchronized void pause() {
+        paused = true;
+        finishIfPausedAndIdle();
+    }
+
+    synchronized SiteCheckpoint checkpoint() {
+        SiteCheckpoint checkpoint = new SiteCheckpoint();
+        checkpoint.setSiteId(siteEntity.getId());
+        checkpoint.setUrl(siteEntity.getUrl());
+        checkpoint.setIncremental(incremental);
+        checkpoint.setMaxSavedPageId(maxSavedPageId.get());
+        checkpoint.setCrawledPages(dispatchedPages - inFlightPaths.size() - retries.size());
+        Map<String, Integer> queuedPaths = frontier.getQueuedPaths();
+        checkpoint.getQueuedPaths().addAll(queuedPaths.keySet());
+        checkpoint.getPathDepths().putAll(queuedPaths);
+        retries.forEach(retryTask -> {
+            checkpoint.getQueuedPaths().add(retryTask.task.getPath());
+            checkpoint.getPathDepths().put(retryTask.task.getPath(),
+                    retryTask.task.getDepth());
+        });
+        priorityPaths.forEach(priorityPath -> {
+            checkpoint.getQueuedPaths().add(priorityPath);
+            checkpoint.getPathDepths().put(priorityPath, 0);
+        });
+        checkpoint.getInFlightPaths().addAll(inFlightPaths.keySet());
+        checkpoint.getPathDepths().putAll(inFlightPaths);
+        return checkpoint;
+    }
+
+    private void finishIfPausedAndIdle() {
+        if (paused && inFlightPaths.isEmpty()) {
+            finish();
+        }
+    }
+
+    boolean isPriority() {
+        return !followLinks;
+    }
+
+    public CompletableFuture<SiteCrawl> getCompletion() {
+        return completion;
+    }
+
+    private void finish() {
+        completion.complete(this);
+    }
+
+    public void cancel() {
+        cancelled = true;
+        priorityPaths.clear();
+        frontier.clear();
+        retries.clear();
+        finish();
+    }
+
+    public int getPendingPages() {
+        return Math.max(0, pendingPages.get());
+    }
+
+    public boolean isFinished() {
+        return completion.isDone();
+    }
+
+    private static class RetryTask implements Delayed {
+        private final PageTask task;
+        private final long dueTime;
+
+        private RetryTask(PageTask task, long dueTime) {
+            this.task = task;
+            this.dueTime = dueTime;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueTime - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed that) {
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS),
+                    that.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package searchengine.services;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlSettings;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.function.BiPredicate;
+import java.util.function.BooleanSupplier;
+import java.util.zip.GZIPInputStream;
+
+@Component
+public class SitemapReader {
+    private final Logger logger = LogManager.getLogger(SitemapReader.class);
+
+    private final PageFetcher pageFetcher;
+    private final CrawlSettings settings;
+    private final UrlCanonicalizer urlCanonicalizer;
+    private final XMLInputFactory xmlInputFactory = XMLInputFactory.newFactory();
+
+    public SitemapReader(PageFetcher pageFetcher, CrawlSettings settings,
+                         UrlCanonicalizer urlCanonicalizer) {
+        this.pageFetcher = pageFetcher;
+        this.settings = settings;
+        this.urlCanonicalizer = urlCanonicalizer;
+        xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    public int read(String siteUrl, BooleanSupplier stopped,
+                    BiPredicate<String, Instant> urlConsumer) {
+        if (stopped.getAsBoolean()) {
+            return 0;
+        }
+        Deque<String> sitemapUrls = new ArrayDeque<>(getSitemapUrls(siteUrl));
+        if (sitemapUrls.isEmpty()) {
+            sitemapUrls.add(siteUrl.concat("/sitemap.xml"));
+        }
+        Set<String> readSitemapUrls = new HashSet<>();
+        int urlCount = 0;
+        while (!sitemapUrls.isEmpty() && readSitemapUrls.size() < settings.getMaxSitemaps()) {
+            String sitemapUrl = sitemapUrls.poll();
+            if (!readSitemapUrls.add(sitemapUrl)) {
+                continue;
+            }
+            if (stopped.getAsBoolean()) {
+                return urlCount;
+            }
+            int sitemapUrlCount = readSitemap(siteUrl, sitemapUrl, sitemapUrls, urlConsumer);
+            if (sitemapUrlCount < 0) {
+                return urlCount;
+            }
+            urlCount += sitemapUrlCount;
+        }
+        return urlCount;
+    }
+
+    private List<String> getSitemapUrls(String siteUrl) {
+        List<String> sitemapUrls = new ArrayList<>();
+        try (InputStream robots = pageFetcher.open(siteUrl.concat("/robots.txt"))) {
+            if (robots == null) {
+                return sitemapUrls;
+            }
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(robots, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int comment = line.indexOf('#');
+                String[] nameAndValue = (comment < 0 ? line : line.substring(0, comment)).
+                        split(":", 2);
+                if (nameAndValue.length == 2 &&
+                        nameAndValue[0].trim().equalsIgnoreCase("sitemap") &&
+                        !nameAndValue[1].isBlank()) {
+                    addSitemapUrl(siteUrl, nameAndValue[1].trim(), sitemapUrls);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("При чтении robots.txt сайта {} возникла ошибка: {}", siteUrl, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return sitemapUrls;
+    }
+
+    private void addSitemapUrl(String siteUrl, String sitemapUrl,
+                               Collection<String> sitemapUrls) {
+        if (urlCanonicalizer.isSameSite(siteUrl, sitemapUrl)) {
+            sitemapUrls.add(sitemapUrl);
+        } else {
+            logger.warn("Карта сайта {} не относится к сайту {} и пропущена",
+                    sitemapUrl, siteUrl);
+        }
+    }
+
+    private int readSitemap(String siteUrl, String sitemapUrl,
+                            Collection<String> nestedSitemapUrls,
+                            BiPredicate<String, Instant> urlConsumer) {
+        int urlCount = 0;
+        XMLStreamReader reader = null;
+        try (InputStream body = pageFetcher.open(sitemapUrl)) {
+            if (body == null) {
+                return 0;
+            }
+            reader = xmlInputFactory.createXMLStreamReader(unzip(body));
+            String loc = null;
+            Instant lastmod = null;
+            int depth = 0;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    String name = depth == 2 || depth == 3 ? reader.getLocalName() : "";
+                    if (depth == 2 && (name.equals("url") || name.equals("sitemap"))) {
+                        loc = null;
+                        lastmod = null;
+                    } else if (depth == 3 && name.equals("loc")) {
+                        loc = reader.getElementText().trim();
+                        depth--;
+                    } else if (depth == 3 && name.equals("lastmod")) {
+                        lastmod = parseLastmod(reader.getElementText().trim());
+                        depth--;
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (depth-- != 2 || loc == null) {
+                        continue;
+                    }
+                    if (reader.getLocalName().equals("sitemap")) {
+                        addSitemapUrl(siteUrl, loc, nestedSitemapUrls);
+                    } else if (reader.getLocalName().equals("url")) {
+                        if (!urlConsumer.test(loc, lastmod)) {
+                            return -1;
+                        }
+                        urlCount++;
+                    }
+                }
+            }
+        } catch (IOException | XMLStreamException e) {
+            logger.warn("При чтении карты сайта {} возникла ошибка: {}", sitemapUrl, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        } finally {
+            close(reader);
+        }
+        logger.info("Из карты сайта {} прочитано {} ссылок", sitemapUrl, urlCount);
+        return urlCount;
+    }
+
+    private InputStream unzip(InputStream body) throws IOException {
+        BufferedInputStream bufferedBody = new BufferedInputStream(body);
+        bufferedBody.mark(2);
+        int magic = bufferedBody.read() | (bufferedBody.read() << 8);
+        bufferedBody.reset();
+        return magic == GZIPInputStream.GZIP_MAGIC ?
+                new GZIPInputStream(bufferedBody) : bufferedBody;
+    }
+
+    static Instant parseLastmod(String lastmod) {
+        try {
+            return lastmod.length() == 10 ?
+                    LocalDate.parse(lastmod).atStartOfDay(ZoneOffset.UTC).toInstant() :
+                    OffsetDateTime.parse(lastmod).toInstant();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private void close(XMLStreamReader reader) {
+        if (reader == null) {
+            return;
+        }
+        try {
+            reader.close();
+        } catch (XMLStreamException ignored) {
+        }
+    }
+}
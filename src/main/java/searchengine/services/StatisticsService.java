@@ -1,9 +1,11 @@
 package searchengine.services;
 
 import searchengine.dto.indexing.SearchResponse;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import searchengine.dto.statistics.StatisticsResponse;
 
 public interface StatisticsService {
     StatisticsResponse getStatistics();
+    SseEmitter subscribe();
     SearchResponse getSearchResults(String query, Integer offset, Integer limit, String site);
 }
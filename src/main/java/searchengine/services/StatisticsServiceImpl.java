@@ -8,8 +8,11 @@ import org.apache.logging.log4j.MarkerManager;
 import org.hibernate.Session;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.thymeleaf.util.StringUtils;
+import searchengine.dto.indexing.PageText;
 import searchengine.dto.indexing.SearchData;
 import searchengine.dto.indexing.SearchResponse;
 import searchengine.dto.statistics.DetailedStatisticsItem;
@@ -18,15 +21,17 @@ import searchengine.dto.statistics.StatisticsResponse;
 import searchengine.dto.statistics.TotalStatistics;
 import searchengine.exceptions.QueryFormatIsWrong;
 import searchengine.exceptions.QueryIsEmpty;
+import searchengine.exceptions.SearchRangeIsWrong;
 import searchengine.model.*;
-import searchengine.repositories.LemmaDAO;
+import searchengine.repositories.IndexDAO;
+import searchengine.repositories.PageDAO;
+import searchengine.repositories.PageTextDAO;
 import searchengine.repositories.SiteDAO;
 
+import java.io.IOException;
 import java.text.DecimalFormat;
 import java.util.*;
-import java.util.concurrent.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Collectors;
 
 @Service
@@ -40,23 +45,35 @@ public class StatisticsServiceImpl implements StatisticsService {
             "Ошибка индексации: главная страница сайта не доступна",
             "Ошибка индексации: сайт не доступен",
             "Индексация остановлена пользователем",
-            ""
+            "",
+            "Индексация приостановлена пользователем"
     };
     private final int limitOnFoundPages = 50; //%
+    private final int defaultLimit = 20;
+    private final int maxLimit = 100;
     private final int lengthLine = 110;
     private final int countLine = 3;
 
     private final SiteDAO siteDAO;
-    private final LemmaDAO lemmaDAO;
+    private final PageDAO pageDAO;
+    private final PageTextDAO pageTextDAO;
+    private final IndexDAO indexDAO;
     private final LemmaFinder lemmaFinder;
+    private final InvertedIndex invertedIndex;
+    private final SiteCounters siteCounters;
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+    private volatile long publishedVersion = -1;
 
     @Override
     public StatisticsResponse getStatistics() {
 
         logger.info(historyMarker, "Запрос на получение статистики");
+        return collectStatistics();
+    }
 
+    private StatisticsResponse collectStatistics() {
         Session session = siteDAO.getSession();
-        List<SiteEntity> siteEntities = siteDAO.getEntities(session);
+        List<SiteEntity> siteEntities = siteDAO.findCurrentSites(session);
         List<DetailedStatisticsItem> items =
                 getDetailedStatistics(siteEntities);
         TotalStatistics total = getTotalStatistics(siteEntities, items);
@@ -72,6 +89,35 @@ public class StatisticsServiceImpl implements StatisticsService {
         return response;
     }
 
+    @Override
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(0L);
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(() -> emitters.remove(emitter));
+        emitter.onError(e -> emitters.remove(emitter));
+        emitters.add(emitter);
+        publishedVersion = -1;
+        return emitter;
+    }
+
+    @Scheduled(fixedDelayString = "${indexing-settings.statistics-push-delay:1000}")
+    public void publishStatistics() {
+        long version = siteCounters.getVersion();
+        if (emitters.isEmpty() || version == publishedVersion) {
+            return;
+        }
+        publishedVersion = version;
+
+        StatisticsResponse statistics = collectStatistics();
+        emitters.forEach(emitter -> {
+            try {
+                emitter.send(SseEmitter.event().name("statistics").data(statistics));
+            } catch (IOException | IllegalStateException e) {
+                emitters.remove(emitter);
+            }
+        });
+    }
+
     @Override
     public SearchResponse getSearchResults(
             String query, Integer offset, Integer limit, String site) {
@@ -88,21 +134,53 @@ public class StatisticsServiceImpl implements StatisticsService {
         if (!query.matches("[А-яЁё\\s]+")) {
             throw new QueryFormatIsWrong("Задан некорректный запрос");
         }
-
-        Session session = lemmaDAO.getSession();
-        List<LemmaEntity> lemmaEntitiesOnQuery =
-                getLemmaEntities(query, site, session);
-        Map<PageEntity, List<IndexEntity>> pageEntitiesAndIndexEntitiesOnQueryLemmas =
-                getPageEntitiesAndIndexEntities(lemmaEntitiesOnQuery);
-        List<SearchData> searchDataList =
-                getSearchData(pageEntitiesAndIndexEntitiesOnQueryLemmas, site, session);
-        session.close();
+        offset = offset == null ? 0 : offset;
+        limit = limit == null ? defaultLimit : limit;
+        if (offset < 0) {
+            throw new SearchRangeIsWrong("Смещение не может быть отрицательным");
+        }
+        if (limit < 1 || limit > maxLimit) {
+            throw new SearchRangeIsWrong("Число результатов должно быть от 1 до " +
+                    maxLimit);
+        }
 
         SearchResponse searchResponse = new SearchResponse();
         searchResponse.setResult(true);
-        searchResponse.setCount(searchDataList.size());
-        searchResponse.setData(searchDataList.stream().
-                skip(offset).limit(limit).collect(Collectors.toList()));
+        searchResponse.setCount(0);
+        searchResponse.setData(Collections.emptyList());
+
+        Session session = pageDAO.getSession();
+        Integer siteId = null;
+        if (site != null) {
+            SiteEntity siteEntity = siteDAO.findSiteByUrl(session, site);
+            if (siteEntity == null) {
+                session.close();
+                return searchResponse;
+            }
+            siteId = siteEntity.getId();
+        }
+
+        Collection<List<InvertedIndex.Term>> termsBySite =
+                getTermsBySite(getTerms(query, siteId));
+        int amountAllPages = getAmountOfPages(siteId);
+        int estimatedCount = termsBySite.stream().
+                mapToInt(terms -> terms.get(0).getFrequency()).sum();
+
+        if (getGuaranteedCount(termsBySite) * 100L >
+                (long) limitOnFoundPages * amountAllPages) {
+            searchResponse.setCount(estimatedCount);
+            searchResponse.setData(offset == 0 ?
+                    List.of(getSearchDataWhenLimitIsOver(
+                            getPercentage(estimatedCount, amountAllPages))) :
+                    Collections.emptyList());
+        } else {
+            SearchHits searchHits = getSearchHits(termsBySite,
+                    (int) Math.min((long) offset + limit, Integer.MAX_VALUE));
+            searchResponse.setCount(searchHits.getCount());
+            searchResponse.setData(getSearchData(searchHits, offset, limit,
+                    amountAllPages, session));
+        }
+        session.close();
 
         return searchResponse;
     }
@@ -116,8 +194,9 @@ public class StatisticsServiceImpl implements StatisticsService {
             item.setName(siteEntity.getName());
             item.setStatus(siteEntity.getStatus().toString());
             item.setStatusTime(siteEntity.getStatusTime().getTime());
-            item.setPages(siteEntity.getPageEntitySet().size());
-            item.setLemmas(siteEntity.getLemmaEntitySet().size());
+            SiteCounters.Counters counters = siteCounters.get(siteEntity.getId());
+            item.setPages(counters.getPages());
+            item.setLemmas(counters.getLemmas());
             item.setError(siteEntity.getLastError() == null ?
                     ERRORS[3] : siteEntity.getLastError());
             return item;
@@ -138,91 +217,114 @@ public class StatisticsServiceImpl implements StatisticsService {
         return total;
     }
 
-    private List<LemmaEntity> getLemmaEntities(
-            String query, String siteUrl, Session session) {
+    private List<InvertedIndex.Term> getTerms(String query, Integer siteId) {
         return lemmaFinder.getUniqueWords(query).
                 stream().map(lemmaFinder::getNormalForms).
                 filter(normalForms -> normalForms.size() != 0).
-                flatMap(normalForms ->
-                        lemmaDAO.findLemmasByNormalForm(session,
-                                normalForms.get(0)).stream()).
-                filter(Objects::nonNull).
-                filter(lemmaEntity -> siteUrl == null ||
-                        lemmaEntity.getSiteEntity() == siteDAO.
-                        findSiteByUrl(session, siteUrl)).
-                sorted().collect(Collectors.toList());
+                map(normalForms -> normalForms.get(0)).distinct().
+                flatMap(normalForm -> invertedIndex.
+                        findTerms(normalForm, siteId).stream()).
+                collect(Collectors.toList());
     }
 
-    private Map<PageEntity, List<IndexEntity>> getPageEntitiesAndIndexEntities(
-            List<LemmaEntity> lemmaEntities) {
+    private Collection<List<InvertedIndex.Term>> getTermsBySite(
+            List<InvertedIndex.Term> terms) {
+
+        int amountDistinctLemmas = (int) terms.stream().
+                map(InvertedIndex.Term::getLemma).distinct().count();
+
+        return terms.stream().
+                collect(Collectors.groupingBy(InvertedIndex.Term::getSiteId)).
+                values().stream().
+                filter(termsOfSite -> termsOfSite.size() == amountDistinctLemmas).
+                map(termsOfSite -> termsOfSite.stream().sorted().toList()).
+                toList();
+    }
 
-        Map<PageEntity, List<IndexEntity>> map = new HashMap<>();
-        if (lemmaEntities.isEmpty()) {
-            return map;
+    private int getAmountOfPages(Integer siteId) {
+        if (siteId != null) {
+            return siteCounters.get(siteId).getPages();
         }
+        return siteCounters.getSiteIds().stream().
+                filter(invertedIndex::isVisible).
+                mapToInt(id -> siteCounters.get(id).getPages()).
+                sum();
+    }
 
-        int amountDistinctLemmas = (int) lemmaEntities.stream().
-                map(LemmaEntity::getLemma).distinct().count();
+    private long getGuaranteedCount(Collection<List<InvertedIndex.Term>> termsBySite) {
+        return termsBySite.stream().mapToLong(termsByFrequency -> {
+            SiteCounters.Counters counters =
+                    siteCounters.get(termsByFrequency.get(0).getSiteId());
+            if (!counters.isReconciled()) {
+                return 0;
+            }
+            int amountSitePages = counters.getPages();
+            long guaranteedCount = termsByFrequency.stream().
+                    mapToLong(InvertedIndex.Term::getFrequency).sum() -
+                    (long) (termsByFrequency.size() - 1) * amountSitePages;
+            return Math.max(0, guaranteedCount);
+        }).sum();
+    }
 
-        lemmaEntities.parallelStream().
-                flatMap(lemmaEntity -> lemmaEntity.getIndexEntities().stream()).
-                collect(Collectors.groupingBy(IndexEntity::getPageEntity)).
-                forEach((pageEntity, indexEntities) -> {
-                    if (indexEntities.size() >= amountDistinctLemmas) {
-                        map.put(pageEntity, indexEntities);
-                    }
-                });
+    private SearchHits getSearchHits(Collection<List<InvertedIndex.Term>> termsBySite,
+                                     int capacity) {
 
-        return map;
+        SearchHits searchHits = new SearchHits(capacity);
+        termsBySite.forEach(termsByFrequency ->
+                PostingIntersector.intersect(termsByFrequency, (pageId, ranks) ->
+                        searchHits.add(pageId, ranks, termsByFrequency)));
+        return searchHits;
     }
 
-    private List<SearchData> getSearchData(
-            Map<PageEntity, List<IndexEntity>> pageEntitiesAndIndexEntitiesOnQueryLemmas,
-            String site, Session session) {
+    private List<SearchData> getSearchData(SearchHits searchHits, int offset,
+                                           int limit, int amountAllPages,
+                                           Session session) {
 
-        if (pageEntitiesAndIndexEntitiesOnQueryLemmas.size() == 0) {
+        if (searchHits.getCount() == 0) {
             return Collections.emptyList();
         }
 
-        int sizeOfPageEntityList = pageEntitiesAndIndexEntitiesOnQueryLemmas.keySet().size();
-        float percentage = getPercentageOfFoundPages(sizeOfPageEntityList, site, session);
+        float percentage = getPercentage(searchHits.getCount(), amountAllPages);
 
         if (percentage > limitOnFoundPages) {
-            return getSearchDataWhenLimitIsOver(sizeOfPageEntityList, percentage);
+            return offset == 0 ?
+                    List.of(getSearchDataWhenLimitIsOver(percentage)) :
+                    Collections.emptyList();
         }
 
-        ExecutorService executor = Executors.newCachedThreadPool();
-        List<Future<SearchData>>  futureList =
-                submitTaskToCreateSearchData(executor,
-                        pageEntitiesAndIndexEntitiesOnQueryLemmas,
-                        getMaxAbsoluteRelevance(pageEntitiesAndIndexEntitiesOnQueryLemmas));
-        List<SearchData> data = futureList.stream().map(future -> {
-            try {
-                return future.get();
-            } catch (InterruptedException | ExecutionException e) {
-                e.printStackTrace();
-            }
-            return null;
-        }).filter(Objects::nonNull).sorted().collect(Collectors.toList());
-        executor.shutdown();
+        List<SearchHit> hitsOnPage = searchHits.getTopHits().stream().
+                skip(offset).limit(limit).toList();
+        if (hitsOnPage.isEmpty()) {
+            return Collections.emptyList();
+        }
 
-        return data;
+        Map<Integer, PageText> pageTextsById = pageTextDAO.
+                findPageTexts(session, hitsOnPage.stream().
+                        map(SearchHit::getPageId).toList()).stream().
+                map(pageText -> pageText.getText() == null ?
+                        parsePageContent(pageText, session) : pageText).
+                collect(Collectors.toMap(PageText::getPageId,
+                        pageText -> pageText));
+        Map<Integer, Map<Integer, byte[]>> positionsByPageId =
+                getPositions(hitsOnPage, session);
+
+        return hitsOnPage.stream().
+                filter(searchHit -> pageTextsById.containsKey(searchHit.getPageId())).
+                map(searchHit -> getTaskToCreateSearchData(
+                        pageTextsById.get(searchHit.getPageId()),
+                        searchHit,
+                        positionsByPageId.getOrDefault(searchHit.getPageId(),
+                                Collections.emptyMap()),
+                        searchHits.getMaxAbsoluteRelevance())).
+                collect(Collectors.toList());
     }
 
-    private float getPercentageOfFoundPages(int sizeOfPageEntityList, String site,
-                                            Session session) {
-
-        int amountAllPages =
-                siteDAO.getEntities(session).stream().filter(s -> site == null ||
-                                ((SiteEntity) s).getUrl().equals(site)).
-                        mapToInt(s -> ((SiteEntity) s).getPageEntitySet().size()).
-                        sum();
-
-        return (float) sizeOfPageEntityList / amountAllPages * 100;
+    private float getPercentage(int amountFoundPages, int amountAllPages) {
+        return amountAllPages == 0 ? 0 :
+                (float) amountFoundPages / amountAllPages * 100;
     }
 
-    private List<SearchData> getSearchDataWhenLimitIsOver(
-            int sizeOfPageEntityList, float percentage) {
+    private SearchData getSearchDataWhenLimitIsOver(float percentage) {
 
         SearchData searchData = new SearchData();
         searchData.setSiteName("");
@@ -230,165 +332,146 @@ public class StatisticsServiceImpl implements StatisticsService {
         searchData.setSnippet("Результаты поиска присутствуют на <b> ".
                 concat((new DecimalFormat("##.##")).format(percentage)).
                 concat(" %</b> страниц "));
-        return new ArrayList<>(sizeOfPageEntityList){{add(searchData);
-            addAll(Arrays.asList(new SearchData [sizeOfPageEntityList - 1]));}};
+        return searchData;
     }
 
-    private int getMaxAbsoluteRelevance(
-            Map<PageEntity, List<IndexEntity>> pageEntitiesAndIndexEntitiesOnQueryLemmas) {
-
-        return pageEntitiesAndIndexEntitiesOnQueryLemmas.values().stream()
-                .mapToInt(indexEntities -> indexEntities.stream().parallel()
-                        .mapToInt(IndexEntity::getRank).sum()).sequential()
-                .max().getAsInt();
+    private PageText parsePageContent(PageText pageText, Session session) {
+        PageEntity pageEntity = (PageEntity) pageDAO.
+                findOneById(session, pageText.getPageId());
+        Document htmlCode = Jsoup.parse(pageEntity.getContent());
+        return pageText.withTitleAndText(htmlCode.title(), htmlCode.text());
     }
 
-    private List<Future<SearchData>> submitTaskToCreateSearchData(
-            ExecutorService executor,
-            Map<PageEntity, List<IndexEntity>> pageEntitiesAndIndexEntitiesOnQueryLemmas,
-            int maxAbsoluteRelevance) {
-
-        List<Future<SearchData>> futureList = new ArrayList<>();
-
-        pageEntitiesAndIndexEntitiesOnQueryLemmas.forEach(
-                (pageEntityOnQuery, indexEntityListOnQuery) -> {
-                    Future<SearchData> future =
-                            executor.submit(() ->
-                                    getTaskToCreateSearchData(pageEntityOnQuery,
-                                            indexEntityListOnQuery,
-                                            maxAbsoluteRelevance)
-                            );
-                    futureList.add(future);
+    private Map<Integer, Map<Integer, byte[]>> getPositions(
+            List<SearchHit> hitsOnPage, Session session) {
+
+        Map<Integer, Map<Integer, byte[]>> positionsByPageId = new HashMap<>();
+        indexDAO.findPositions(session,
+                        hitsOnPage.stream().map(SearchHit::getPageId).toList(),
+                        hitsOnPage.stream().flatMap(searchHit ->
+                                        searchHit.getTerms().stream()).
+                                map(InvertedIndex.Term::getLemmaId).
+                                collect(Collectors.toSet())).
+                forEach(row -> {
+                    if (row[2] != null) {
+                        positionsByPageId.computeIfAbsent((Integer) row[0],
+                                        pageId -> new HashMap<>()).
+                                put((Integer) row[1], (byte[]) row[2]);
+                    }
                 });
-
-        return futureList;
+        return positionsByPageId;
     }
 
-    private SearchData getTaskToCreateSearchData(PageEntity pageEntityOnQuery,
-                                                 List<IndexEntity> indexEntityListOnQuery,
+    private SearchData getTaskToCreateSearchData(PageText pageText,
+                                                 SearchHit searchHit,
+                                                 Map<Integer, byte[]> positionsByLemmaId,
                                                  int maxAbsoluteRelevance) {
 
-        Document htmlCode = Jsoup.parse(pageEntityOnQuery.getContent());
         SearchData searchData = new SearchData();
-        searchData.setSite(pageEntityOnQuery.getSiteEntity().getUrl());
-        searchData.setSiteName(pageEntityOnQuery.getSiteEntity().getName());
-        searchData.setUri(pageEntityOnQuery.getPath());
-        searchData.setTitle(htmlCode.title());
-        searchData.setSnippet(getSnippet(htmlCode, indexEntityListOnQuery));
-        searchData.setRelevance((float) indexEntityListOnQuery.stream().
-                mapToInt(IndexEntity::getRank).sum() / maxAbsoluteRelevance);
+        searchData.setSite(pageText.getSiteUrl());
+        searchData.setSiteName(pageText.getSiteName());
+        searchData.setUri(pageText.getPath());
+        searchData.setTitle(pageText.getTitle());
+        searchData.setSnippet(getSnippet(pageText.getText(),
+                searchHit.getTerms(), positionsByLemmaId));
+        searchData.setRelevance((float) searchHit.getAbsoluteRelevance() /
+                maxAbsoluteRelevance);
 
         return searchData;
     }
 
-    private String getSnippet(
-            Document htmlCode,
-            List<IndexEntity> indexEntityListOnQuery) {
-
-        List<String> lemmasOnQuery =
-                indexEntityListOnQuery.stream().
-                        map(indexEntity -> indexEntity.getLemmaEntity().getLemma()).
-                        sorted().toList();
-
-        Map<String, List<String>> matchingLemmasOfWordsInHtmlAndQuery = lemmaFinder.
-                collectLemmasEntity(lemmaFinder.
-                        htmlCodeToTextWhitRussianWords(htmlCode)).stream().
-                filter(lemmaEntityOfHtmlTextWord -> lemmasOnQuery.
-                        contains(lemmaEntityOfHtmlTextWord.getLemma().
-                                replaceAll("Ё", "Е").
-                                replaceAll("ё", "е"))).
-                collect(Collectors.groupingBy(LemmaEntity::getLemma,
-                        Collectors.mapping(LemmaEntity::getWord, Collectors.toList())));
-
-        return getPartsOfHtmlTextWithQueryWords(htmlCode.text(),
-                matchingLemmasOfWordsInHtmlAndQuery,
-                lemmasOnQuery);
-    }
-
-    private String getPartsOfHtmlTextWithQueryWords(
-            String htmlText,
-            Map<String, List<String>> matchingLemmasOfWordsInHtmlAndQuery,
-            List<String> lemmasOnQuery) {
-
-        List<String> distinctWordsAccordingToQueryLemmas =
-                matchingLemmasOfWordsInHtmlAndQuery.isEmpty() ?
-                lemmasOnQuery :
-                matchingLemmasOfWordsInHtmlAndQuery.values().stream().
-                        flatMap(wordList -> wordList.stream().distinct()).
-                        collect(Collectors.toList());
-
-        int lengthAllIdenticalWords =
-                distinctWordsAccordingToQueryLemmas.stream().
-                        mapToInt(String::length).sum();
-
-        int lengthSubstring =
-                (lengthLine * countLine - lengthAllIdenticalWords) /
-                        distinctWordsAccordingToQueryLemmas.size();
-
-        String regex = "[^А-яЁё]";
-        String partsOfHtmlText = copyPartsOfHtmlTextWithQueryWords(htmlText,
-                distinctWordsAccordingToQueryLemmas, lengthSubstring, regex);
-
-        StringBuilder builder = new StringBuilder(partsOfHtmlText);
-        for (String word : distinctWordsAccordingToQueryLemmas) {
-            multiPerformTagBSelection(builder, word, regex);
+    private String getSnippet(String text, List<InvertedIndex.Term> terms,
+                              Map<Integer, byte[]> positionsByLemmaId) {
+
+        List<InvertedIndex.Term> termsByLemma = terms.stream().
+                sorted(Comparator.comparing(InvertedIndex.Term::getLemma)).toList();
+
+        List<WordPositions> wordPositionsOnQuery;
+        if (termsByLemma.stream().allMatch(term ->
+                positionsByLemmaId.containsKey(term.getLemmaId()))) {
+            wordPositionsOnQuery = termsByLemma.stream().
+                    map(term -> WordPositions.decode(
+                            positionsByLemmaId.get(term.getLemmaId()))).
+                    toList();
+        } else {
+            HashMap<String, WordPositions> lemmaPositions =
+                    lemmaFinder.collectLemmaPositions(text);
+            wordPositionsOnQuery = termsByLemma.stream().
+                    map(term -> lemmaPositions.getOrDefault(term.getLemma(),
+                            new WordPositions())).
+                    toList();
         }
 
-        return builder.toString();
+        return getPartsOfTextWithQueryWords(text, wordPositionsOnQuery);
     }
 
-    private String copyPartsOfHtmlTextWithQueryWords(
-            String htmlText,
-            List<String> distinctWordsAccordingToQueryLemmas,
-            int lengthSubstring, String regex) {
+    private String getPartsOfTextWithQueryWords(
+            String text, List<WordPositions> wordPositionsOnQuery) {
 
-        String text = " ".concat(htmlText).concat(" ");
+        int lengthSubstring = lengthLine * countLine / wordPositionsOnQuery.size();
 
-        StringBuilder builder = new StringBuilder();
+        List<int[]> parts = new ArrayList<>();
+        List<int[]> words = new ArrayList<>();
+        wordPositionsOnQuery.forEach(wordPositions -> {
+            if (wordPositions.size() == 0) {
+                return;
+            }
+            parts.add(getPartAroundWord(text, wordPositions.getStart(0),
+                    wordPositions.getStart(0) + wordPositions.getLength(0),
+                    lengthSubstring));
+            for (int i = 0; i < wordPositions.size(); i++) {
+                words.add(new int[]{wordPositions.getStart(i),
+                        wordPositions.getStart(i) + wordPositions.getLength(i)});
+            }
+        });
+        parts.sort(Comparator.comparingInt(part -> part[0]));
+        words.sort(Comparator.comparingInt(word -> word[0]));
 
-        for (String word : distinctWordsAccordingToQueryLemmas) {
-            Pattern pattern = Pattern.compile(regex + word + regex);
-            Matcher matcher =  pattern.matcher(text);
-            if (matcher.find()) {
-                int startIndex = matcher.start();
-                int endIndex = matcher.end();
-
-                int indexDown = startIndex;
-                int indexUp = endIndex;
-                while ((indexUp - indexDown < lengthSubstring) &&
-                        (indexDown > 0 && indexUp < text.length())) {
-
-                    startIndex = text.charAt(indexDown) == ' ' ?
-                            indexDown : startIndex;
-                    endIndex = text.charAt(indexUp) == ' ' ?
-                            indexUp : endIndex;
-                    indexDown--;
-                    indexUp++;
+        StringBuilder builder = new StringBuilder();
+        int partEnd = -1;
+        int wordIndex = 0;
+        for (int[] part : parts) {
+            if (part[1] <= partEnd) {
+                continue;
+            }
+            int position = Math.max(part[0], partEnd);
+            int end = part[1];
+            builder.append(partEnd < part[0] ? " ... " : "");
+            while (wordIndex < words.size() && words.get(wordIndex)[0] < end) {
+                int[] word = words.get(wordIndex++);
+                if (word[0] < position) {
+                    continue;
                 }
-
-                builder.append(" ... ".
-                        concat(text.substring(startIndex, endIndex + 1)).
-                        concat(" ... "));
+                builder.append(text, position, word[0]).append("<b>").
+                        append(text, word[0], word[1]).append("</b>");
+                position = word[1];
+                end = Math.max(end, word[1]);
             }
+            builder.append(text, position, end);
+            partEnd = end;
         }
-        return builder.toString();
+
+        return builder.append(" ... ").toString();
     }
 
-    private void multiPerformTagBSelection(
-            StringBuilder builder, String word, String regex) {
+    private int[] getPartAroundWord(String text, int wordStart, int wordEnd,
+                                    int lengthSubstring) {
 
-        String text = builder.toString();
+        int start = Math.max(0,
+                wordStart - Math.max(0, lengthSubstring - (wordEnd - wordStart)) / 2);
+        int end = Math.max(wordEnd, Math.min(text.length(), start + lengthSubstring));
 
-        Pattern pattern = Pattern.compile(regex + word + regex);
-        Matcher matcher = pattern.matcher(text);
-        builder.delete(0, builder.length());
-        while (matcher.find()) {
-            String charStart = text.substring(matcher.start(), matcher.start()+1);
-            String charEnd = text.substring(matcher.end()-1, matcher.end());
-            matcher.appendReplacement(builder, charStart.concat("<b>").
-                    concat(word).concat("</b>").concat(charEnd));
+        int spaceAfterStart = text.indexOf(' ', start);
+        if (start > 0 && text.charAt(start - 1) != ' ' &&
+                spaceAfterStart >= 0 && spaceAfterStart < wordStart) {
+            start = spaceAfterStart + 1;
+        }
+        int spaceBeforeEnd = text.lastIndexOf(' ', end);
+        if (end < text.length() && text.charAt(end) != ' ' &&
+                spaceBeforeEnd >= wordEnd) {
+            end = spaceBeforeEnd;
         }
-        matcher.appendTail(builder);
+        return new int[]{start, end};
     }
 
 }
@@ -0,0 +1,167 @@
+package searchengine.services;
+
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlSettings;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.*;
+
+@Component
+public class UrlCanonicalizer {
+    private final CrawlSettings settings;
+    private final Set<String> skippedExtensions = new HashSet<>();
+    private final Set<String> ignoredQueryParams = new HashSet<>();
+    private final List<String> ignoredQueryParamPrefixes = new ArrayList<>();
+
+    public UrlCanonicalizer(CrawlSettings settings) {
+        this.settings = settings;
+        settings.getSkippedExtensions().forEach(extension ->
+                skippedExtensions.add(extension.toLowerCase(Locale.ROOT)));
+        settings.getIgnoredQueryParams().forEach(param -> {
+            String name = param.toLowerCase(Locale.ROOT);
+            if (name.endsWith("*")) {
+                ignoredQueryParamPrefixes.add(name.substring(0, name.length() - 1));
+            } else {
+                ignoredQueryParams.add(name);
+            }
+        });
+    }
+
+    public String canonicalize(String siteUrl, String baseUrl, String href) {
+        if (href == null || href.isBlank()) {
+            return null;
+        }
+        URI uri;
+        try {
+            uri = new URI(baseUrl).resolve(new URI(href.trim().replace(" ", "%20")));
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+        String scheme = uri.getScheme();
+        if (scheme == null || !(scheme.equalsIgnoreCase("http") ||
+                scheme.equalsIgnoreCase("https")) || !isSameHost(siteUrl, uri.getHost())) {
+            return null;
+        }
+        return canonicalizePath(uri.getRawPath(), uri.getRawQuery());
+    }
+
+    public boolean isSameSite(String siteUrl, String url) {
+        URI uri;
+        try {
+            uri = new URI(url.trim());
+        } catch (URISyntaxException e) {
+            return false;
+        }
+        String scheme = uri.getScheme();
+        return scheme != null && (scheme.equalsIgnoreCase("http") ||
+                scheme.equalsIgnoreCase("https")) && isSameHost(siteUrl, uri.getHost());
+    }
+
+    public String canonicalizePath(String path) {
+        int fragment = path.indexOf('#');
+        if (fragment >= 0) {
+            path = path.substring(0, fragment);
+        }
+        int query = path.indexOf('?');
+        return query < 0 ? canonicalizePath(path, null) :
+                canonicalizePath(path.substring(0, query), path.substring(query + 1));
+    }
+
+    private String canonicalizePath(String rawPath, String rawQuery) {
+        String path = normalizeSlashes(rawPath == null ? "" : rawPath.trim());
+        if (isSkipped(path)) {
+            return null;
+        }
+        String query = canonicalizeQuery(rawQuery);
+        return query.isEmpty() ? path : path + "?" + query;
+    }
+
+    private String normalizeSlashes(String path) {
+        StringBuilder normalizedPath = new StringBuilder(path.length() + 1);
+        List<Integer> segmentStarts = new ArrayList<>();
+        for (String segment : path.split("/")) {
+            if (segment.isEmpty() || segment.equals(".")) {
+                continue;
+            }
+            if (segment.equals("..")) {
+                if (!segmentStarts.isEmpty()) {
+                    normalizedPath.setLength(segmentStarts.remove(segmentStarts.size() - 1));
+                }
+                continue;
+            }
+            segmentStarts.add(normalizedPath.length());
+            normalizedPath.append('/').append(uppercasePercentEncoding(segment));
+        }
+        return normalizedPath.length() == 0 ? "/" : normalizedPath.toString();
+    }
+
+    private String canonicalizeQuery(String rawQuery) {
+        if (settings.isDropQuery() || rawQuery == null || rawQuery.isBlank()) {
+            return "";
+        }
+        List<String> params = new ArrayList<>();
+        for (String param : rawQuery.split("&")) {
+            if (param.isEmpty()) {
+                continue;
+            }
+            int equals = param.indexOf('=');
+            String name = (equals < 0 ? param : param.substring(0, equals)).
+                    toLowerCase(Locale.ROOT);
+            if (!isIgnoredQueryParam(name)) {
+                params.add(uppercasePercentEncoding(param));
+            }
+        }
+        Collections.sort(params);
+        return String.join("&", params);
+    }
+
+    private boolean isIgnoredQueryParam(String name) {
+        return ignoredQueryParams.contains(name) ||
+                ignoredQueryParamPrefixes.stream().anyMatch(name::startsWith);
+    }
+
+    private boolean isSkipped(String path) {
+        String lowerCasePath = path.toLowerCase(Locale.ROOT);
+        if (settings.getSkippedPathPrefixes().stream().
+                anyMatch(prefix -> lowerCasePath.startsWith(prefix.toLowerCase(Locale.ROOT)))) {
+            return true;
+        }
+        int lastSegment = lowerCasePath.lastIndexOf('/');
+        int extension = lowerCasePath.lastIndexOf('.');
+        return extension > lastSegment &&
+                skippedExtensions.contains(lowerCasePath.substring(extension + 1));
+    }
+
+    private boolean isSameHost(String siteUrl, String host) {
+        if (host == null) {
+            return false;
+        }
+        String siteHost;
+        try {
+            siteHost = new URI(siteUrl).getHost();
+        } catch (URISyntaxException e) {
+            return false;
+        }
+        return siteHost != null &&
+                stripWww(siteHost).equalsIgnoreCase(stripWww(host));
+    }
+
+    private String stripWww(String host) {
+        return host.regionMatches(true, 0, "www.", 0, 4) ? host.substring(4) : host;
+    }
+
+    private String uppercasePercentEncoding(String value) {
+        if (value.indexOf('%') < 0) {
+            return value;
+        }
+        char[] chars = value.toCharArray();
+        for (int i = 0; i + 2 < chars.length; i++) {
+            if (chars[i] == '%') {
+                chars[i + 1] = Character.toUpperCase(chars[i + 1]);
+                chars[i + 2] = Character.toUpperCase(chars[i + 2]);
+            }
+        }
+        return new String(chars);
+    }
+}
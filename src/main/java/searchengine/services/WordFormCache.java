@@ -0,0 +1,109 @@
+package searchengine.services;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+class WordFormCache<V> {
+    private final int maxSize;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final ThreadLocal<Key> probes = ThreadLocal.withInitial(Key::new);
+
+    private volatile Map<Key, V> recent = new ConcurrentHashMap<>();
+    private volatile Map<Key, V> previous = new ConcurrentHashMap<>();
+
+    WordFormCache(int maxSize) {
+        this.maxSize = Math.max(2, maxSize);
+    }
+
+    V get(CharSequence wordForm, Function<String, V> loader) {
+        Key probe = probes.get().wrap(wordForm);
+        try {
+            V value = recent.get(probe);
+            if (value != null) {
+                hits.increment();
+                return value;
+            }
+            value = previous.get(probe);
+            String word = wordForm.toString();
+            if (value == null) {
+                misses.increment();
+                value = loader.apply(word);
+            } else {
+                hits.increment();
+            }
+            put(new Key().wrap(word), value);
+            return value;
+        } finally {
+            probe.wrap(null);
+        }
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+
+    int getSize() {
+        return recent.size() + previous.size();
+    }
+
+    int getMaxSize() {
+        return maxSize;
+    }
+
+    private void put(Key wordForm, V value) {
+        Map<Key, V> current = recent;
+        current.put(wordForm, value);
+        if (current.size() >= maxSize / 2) {
+            synchronized (this) {
+                if (recent == current) {
+                    previous = current;
+                    recent = new ConcurrentHashMap<>();
+                }
+            }
+        }
+    }
+
+    private static final class Key {
+        private CharSequence chars;
+        private int hash;
+
+        private Key wrap(CharSequence chars) {
+            this.chars = chars;
+            int hash = 0;
+            for (int i = 0; chars != null && i < chars.length(); i++) {
+                hash = 31 * hash + chars.charAt(i);
+            }
+            this.hash = hash;
+            return this;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key that) || hash != that.hash ||
+                    chars.length() != that.chars.length()) {
+                return false;
+            }
+            for (int i = 0; i < chars.length(); i++) {
+                if (chars.charAt(i) != that.chars.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package searchengine.services;
+
+import java.util.Arrays;
+
+public class WordPositions {
+    private static final int MAX_STORED_POSITIONS = 1000;
+
+    private int[] values = new int[8];
+    private int size;
+
+    public void add(int start, int length) {
+        if (size * 2 == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+        values[size * 2] = start;
+        values[size * 2 + 1] = length;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getStart(int i) {
+        return values[i * 2];
+    }
+
+    public int getLength(int i) {
+        return values[i * 2 + 1];
+    }
+
+    public byte[] encode() {
+        int storedSize = Math.min(size, MAX_STORED_POSITIONS);
+        byte[] buffer = new byte[storedSize * 2 * VarInt.MAX_LENGTH];
+        int position = 0;
+        int previousStart = 0;
+        for (int i = 0; i < storedSize; i++) {
+            position = VarInt.write(buffer, position, getStart(i) - previousStart);
+            position = VarInt.write(buffer, position, getLength(i));
+            previousStart = getStart(i);
+        }
+        return Arrays.copyOf(buffer, position);
+    }
+
+    public static WordPositions decode(byte[] data) {
+        WordPositions wordPositions = new WordPositions();
+        VarInt.Reader reader = new VarInt.Reader(data);
+        int start = 0;
+        while (reader.hasNext()) {
+            start += reader.next();
+            wordPositions.add(start, reader.next());
+        }
+        return wordPositions;
+    }
+}
@@ -1457,6 +1457,7 @@ var API = function(){
             }
         });
     }
+    var statisticsIndexing = false;
     
     var send = {
         startIndexing:{
@@ -1588,6 +1589,7 @@ var API = function(){
                     $('#totalSites').text(result.statistics.total.sites);
                     $('#totalPages').text(result.statistics.total.pages);
                     $('#totalLemmas').text(result.statistics.total.lemmas);
+                    var selectedSite = $('select[name="site"]').val();
                     $('select[name="site"] option').not(':first-child').remove();
                     result.statistics.detailed.forEach(function(site){
                         var $blockSiteExample = $('.Statistics-example').clone(true);
@@ -1649,9 +1651,14 @@ var API = function(){
                             $this.removeClass('Tabs-block_update')
                         });
                     });
-                    if (result.statistics.total.isIndexing) {
-                        var $btnIndex = $('.btn[data-send="startIndexing"]'),
-                            text = $btnIndex.find('.btn-content').text();
+                    $('select[name="site"]').val(selectedSite);
+                    var $btnIndex = $('.btn[data-send="startIndexing"]');
+                    if (!result.statistics.total.isIndexing && statisticsIndexing
+                        && $btnIndex.data('check')) {
+                        shiftCheck($btnIndex, true);
+                    }
+                    if (result.statistics.total.isIndexing && !$btnIndex.data('check')) {
+                        var text = $btnIndex.find('.btn-content').text();
                         $btnIndex.find('.btn-content').text($btnIndex.data('alttext'));
                         $btnIndex
                             .data('check', true)
@@ -1661,6 +1668,7 @@ var API = function(){
                             .addClass('btn_check')
                         $('.UpdatePageBlock').hide(0)
                     }
+                    statisticsIndexing = result.statistics.total.isIndexing;
     
                 } else {
                     if ($this.next('.API-error').length) {
@@ -1731,6 +1739,12 @@ var API = function(){
                 send['statistics'].action,
                 $('.Statistics')
             )
+            if (window.EventSource) {
+                var statisticsSource = new EventSource(backendApiUrl + '/statistics/stream');
+                statisticsSource.addEventListener('statistics', function(e){
+                    send['statistics'].action(JSON.parse(e.data), $('.Statistics'));
+                });
+            }
             var $send = $('[data-send]');
             $send.on('submit click', function(e){
                 var $this = $(this);
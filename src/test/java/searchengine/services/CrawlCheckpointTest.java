@@ -0,0 +1,57 @@
+package searchengine.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CrawlCheckpointTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void restoresCheckpointsWrittenByPreviousRun() throws IOException {
+        Path file = directory.resolve("checkpoint.json");
+        SiteCheckpoint first = checkpoint(1, "https://a.ru");
+        SiteCheckpoint second = checkpoint(2, "https://b.ru");
+        objectMapper.writeValue(file.toFile(), List.of(first, second));
+
+        CrawlCheckpoint crawlCheckpoint = new CrawlCheckpoint(null, objectMapper, file.toString());
+        crawlCheckpoint.load();
+        crawlCheckpoint.remove(first.getUrl());
+
+        CrawlCheckpoint restored = new CrawlCheckpoint(null, objectMapper, file.toString());
+        restored.load();
+        assertEquals(List.of(second), List.copyOf(restored.getCheckpoints()));
+    }
+
+    @Test
+    void ignoresMissingFile() {
+        CrawlCheckpoint crawlCheckpoint = new CrawlCheckpoint(null, objectMapper,
+                directory.resolve("missing.json").toString());
+        crawlCheckpoint.load();
+
+        assertTrue(crawlCheckpoint.getCheckpoints().isEmpty());
+    }
+
+    private SiteCheckpoint checkpoint(int siteId, String url) {
+        SiteCheckpoint checkpoint = new SiteCheckpoint();
+        checkpoint.setSiteId(siteId);
+        checkpoint.setUrl(url);
+        checkpoint.setIncremental(true);
+        checkpoint.setMaxSavedPageId(42);
+        checkpoint.setCrawledPages(7);
+        checkpoint.getQueuedPaths().add("/news");
+        checkpoint.getInFlightPaths().add("/about");
+        checkpoint.getPathDepths().putAll(Map.of("/news", 2, "/about", 1));
+        return checkpoint;
+    }
+}
@@ -0,0 +1,90 @@
+package searchengine.services;
+
+import org.junit.jupiter.api.Test;
+import searchengine.config.CrawlSettings;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CrawlFrontierTest {
+    private final UrlCanonicalizer canonicalizer = new UrlCanonicalizer(new CrawlSettings());
+
+    @Test
+    void pollsShallowPagesFirstThenMostLinked() {
+        CrawlFrontier frontier = new CrawlFrontier(0, canonicalizer);
+        frontier.offer("/deep", 3);
+        frontier.offer("/a", 1);
+        frontier.offer("/b", 1);
+        frontier.offer("/b", 2);
+        frontier.offer("/c", 2);
+        frontier.offer("/c", 1);
+        frontier.offer("/c", 1);
+
+        assertEquals(List.of("/c", "/b", "/a", "/deep"), pollAll(frontier));
+        assertTrue(frontier.isEmpty());
+    }
+
+    @Test
+    void keepsSmallestDepthOfRepeatedLinks() {
+        CrawlFrontier frontier = new CrawlFrontier(0, canonicalizer);
+        frontier.offer("/page", 4);
+        frontier.offer("/page", 2);
+
+        assertEquals(Map.of("/page", 2), frontier.getQueuedPaths());
+    }
+
+    @Test
+    void offersEachCanonicalPathOnce() {
+        CrawlFrontier frontier = new CrawlFrontier(0, canonicalizer);
+
+        assertTrue(frontier.offer("/page?b=2&a=1#top", 1));
+        assertFalse(frontier.offer("//page?a=1&b=2", 1));
+        assertEquals(List.of("/page?a=1&b=2"), pollAll(frontier));
+        assertFalse(frontier.offer("/page?a=1&b=2&utm_source=x", 1));
+    }
+
+    @Test
+    void skipsSeededAndVisitedPaths() {
+        CrawlFrontier frontier = new CrawlFrontier(0, canonicalizer);
+        frontier.seed(List.of("/old", "/kept/"));
+
+        assertFalse(frontier.offer("/old#section", 1));
+        assertFalse(frontier.offer("/kept", 1));
+        assertTrue(frontier.markVisited("/unchanged"));
+        assertFalse(frontier.markVisited("/unchanged/"));
+        assertFalse(frontier.offer("/unchanged", 1));
+        assertTrue(frontier.offer("/new", 1));
+    }
+
+    @Test
+    void rejectsPathsBeyondMaxDepth() {
+        CrawlFrontier frontier = new CrawlFrontier(2, canonicalizer);
+
+        assertTrue(frontier.offer("/two", 2));
+        assertFalse(frontier.offer("/three", 3));
+        assertTrue(frontier.offer("/three", 2));
+    }
+
+    @Test
+    void clearReturnsNumberOfDroppedPaths() {
+        CrawlFrontier frontier = new CrawlFrontier(0, canonicalizer);
+        frontier.offer("/a", 1);
+        frontier.offer("/b", 1);
+
+        assertEquals(2, frontier.clear());
+        assertNull(frontier.poll());
+        assertFalse(frontier.offer("/a", 1));
+    }
+
+    private static List<String> pollAll(CrawlFrontier frontier) {
+        List<String> paths = new ArrayList<>();
+        CrawlFrontier.QueuedPath queuedPath;
+        while ((queuedPath = frontier.poll()) != null) {
+            paths.add(queuedPath.getPath());
+        }
+        return paths;
+    }
+}
@@ -0,0 +1,62 @@
+package searchengine.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HostThrottleTest {
+
+    @Test
+    void limitsRequestsInFlight() {
+        HostThrottle throttle = new HostThrottle(2, 8);
+
+        assertTrue(throttle.tryAcquire(10));
+        assertTrue(throttle.tryAcquire(10));
+        assertFalse(throttle.tryAcquire(10));
+        throttle.release();
+        assertTrue(throttle.tryAcquire(10));
+        assertEquals(2, throttle.getInFlight());
+    }
+
+    @Test
+    void fetchBudgetCapsLimit() {
+        HostThrottle throttle = new HostThrottle(4, 8);
+
+        assertTrue(throttle.tryAcquire(1));
+        assertFalse(throttle.tryAcquire(1));
+    }
+
+    @Test
+    void growsOnFastResponsesUpToMaximum() {
+        HostThrottle throttle = new HostThrottle(1, 3);
+        for (int i = 0; i < 100; i++) {
+            throttle.onSuccess(TimeUnit.MILLISECONDS.toNanos(50));
+        }
+
+        assertEquals(3, throttle.getLimit());
+    }
+
+    @Test
+    void halvesLimitAndPausesWhenThrottled() {
+        HostThrottle throttle = new HostThrottle(8, 8);
+        throttle.onThrottled(TimeUnit.SECONDS.toNanos(60));
+
+        assertEquals(4, throttle.getLimit());
+        assertFalse(throttle.tryAcquire(10));
+
+        throttle.onThrottled(0);
+        throttle.onThrottled(0);
+        throttle.onThrottled(0);
+        assertEquals(1, throttle.getLimit());
+    }
+
+    @Test
+    void keepsAtLeastOneRequest() {
+        HostThrottle throttle = new HostThrottle(0, 0);
+
+        assertEquals(1, throttle.getLimit());
+        assertTrue(throttle.tryAcquire(1));
+    }
+}
@@ -0,0 +1,80 @@
+package searchengine.services;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import searchengine.repositories.LemmaDAO;
+import searchengine.repositories.SiteDAO;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LemmaFrequencyAggregatorTest {
+    private final FakeLemmaDAO lemmaDAO = new FakeLemmaDAO();
+    private final LemmaFrequencyAggregator aggregator =
+            new LemmaFrequencyAggregator(lemmaDAO, new FakeSiteDAO());
+
+    @Test
+    void flushAddsAccumulatedDeltas() {
+        aggregator.increment(1, Map.of("дом", 10, "кот", 11));
+        aggregator.increment(1, Map.of("дом", 10));
+        aggregator.decrement(1, List.of(11));
+
+        aggregator.flushAll();
+
+        assertEquals(Map.of(10, 2), lemmaDAO.frequencies);
+    }
+
+    @Test
+    void flushWithoutChangesDoesNotTouchDatabase() {
+        aggregator.increment(1, Map.of("дом", 10));
+        aggregator.flushAll();
+        lemmaDAO.frequencies.clear();
+
+        aggregator.flushAll();
+
+        assertTrue(lemmaDAO.frequencies.isEmpty());
+    }
+
+    @Test
+    void failedFlushKeepsDeltasForNextFlush() {
+        aggregator.increment(1, Map.of("дом", 10, "кот", 11));
+        lemmaDAO.failing = true;
+
+        aggregator.flushAll();
+        assertTrue(lemmaDAO.frequencies.isEmpty());
+
+        aggregator.increment(1, Map.of("дом", 10));
+        lemmaDAO.failing = false;
+        aggregator.flushAll();
+
+        assertEquals(Map.of(10, 2, 11, 1), lemmaDAO.frequencies);
+    }
+
+    private static class FakeLemmaDAO extends LemmaDAO {
+        private final Map<Integer, Integer> frequencies = new HashMap<>();
+        private boolean failing;
+
+        @Override
+        public Object fromSessionWithTransaction(Function action) {
+            if (failing) {
+                throw new IllegalStateException("rollback");
+            }
+            return action.apply(null);
+        }
+
+        @Override
+        public void addToFrequencies(Session session, int value,
+                                     Collection<Integer> lemmaIds) {
+            lemmaIds.forEach(lemmaId -> frequencies.merge(lemmaId, value, Integer::sum));
+        }
+    }
+
+    private static class FakeSiteDAO extends SiteDAO {
+        @Override
+        public void inSessionWithTransaction(Consumer action) {
+        }
+    }
+}
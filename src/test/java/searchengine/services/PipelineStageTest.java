@@ -0,0 +1,60 @@
+package searchengine.services;
+
+import org.junit.jupiter.api.Test;
+import searchengine.config.PipelineSettings.StageSettings;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PipelineStageTest {
+
+    @Test
+    void discardsOnlyUncompletedItemsWhenHandlerFails() throws InterruptedException {
+        List<String> handled = new CopyOnWriteArrayList<>();
+        List<String> discarded = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(2);
+        PipelineStage<String> stage = new PipelineStage<>("test",
+                new StageSettings(1, 10, 3),
+                (batch, completed) -> {
+                    handled.add(batch.get(0));
+                    completed.accept(batch.get(0));
+                    throw new IllegalStateException("failed");
+                },
+                item -> {
+                    discarded.add(item);
+                    done.countDown();
+                });
+        stage.put("a", false);
+        stage.put("b", false);
+        stage.put("c", false);
+
+        stage.start();
+        try {
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+        } finally {
+            stage.stop();
+        }
+
+        assertEquals(List.of("a"), handled);
+        assertEquals(List.of("b", "c"), discarded);
+    }
+
+    @Test
+    void stopDiscardsQueuedItems() {
+        List<String> discarded = new CopyOnWriteArrayList<>();
+        PipelineStage<String> stage = new PipelineStage<>("test",
+                new StageSettings(1, 10, 1),
+                (batch, completed) -> batch.forEach(completed), discarded::add);
+        stage.put("a", false);
+        stage.put("b", true);
+
+        stage.stop();
+
+        assertEquals(List.of("b", "a"), discarded);
+        assertEquals(0, stage.getStatus().getQueueDepth());
+    }
+}
@@ -0,0 +1,75 @@
+package searchengine.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PostingIntersectorTest {
+
+    @Test
+    void reportsPagesContainingEveryTermWithTheirRanks() {
+        InvertedIndex.Term rare = term(1, "редкий", Map.of(3, 1, 8, 2, 20, 3));
+        InvertedIndex.Term common = term(2, "частый", Map.of(1, 1, 3, 5, 5, 1, 8, 6, 13, 1));
+
+        Map<Integer, List<Integer>> matches = intersect(List.of(rare, common));
+
+        assertEquals(Map.of(3, List.of(1, 5), 8, List.of(2, 6)), matches);
+    }
+
+    @Test
+    void returnsNothingWhenTermsDoNotOverlap() {
+        InvertedIndex.Term first = term(1, "первый", Map.of(1, 1, 3, 1));
+        InvertedIndex.Term second = term(2, "второй", Map.of(2, 1, 4, 1));
+
+        assertTrue(intersect(List.of(first, second)).isEmpty());
+        assertTrue(intersect(List.of()).isEmpty());
+    }
+
+    @Test
+    void singleTermMatchesAllItsPages() {
+        InvertedIndex.Term term = term(1, "слово", Map.of(4, 2, 9, 1));
+
+        assertEquals(Map.of(4, List.of(2), 9, List.of(1)), intersect(List.of(term)));
+    }
+
+    @Test
+    void matchesNaiveIntersectionOnLargeLists() {
+        Random random = new Random(7);
+        List<Map<Integer, Integer>> pages = new ArrayList<>();
+        List<InvertedIndex.Term> terms = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Map<Integer, Integer> ranks = new HashMap<>();
+            for (int pageId = 1; pageId <= 5_000; pageId++) {
+                if (random.nextInt(i + 2) == 0) {
+                    ranks.put(pageId, 1 + random.nextInt(10));
+                }
+            }
+            pages.add(ranks);
+            terms.add(term(i + 1, "лемма" + i, ranks));
+        }
+
+        Map<Integer, List<Integer>> expected = new TreeMap<>();
+        pages.get(0).keySet().stream().
+                filter(pageId -> pages.stream().allMatch(ranks -> ranks.containsKey(pageId))).
+                forEach(pageId -> expected.put(pageId,
+                        pages.stream().map(ranks -> ranks.get(pageId)).toList()));
+
+        assertEquals(expected, intersect(terms));
+    }
+
+    private static InvertedIndex.Term term(int lemmaId, String lemma,
+                                           Map<Integer, Integer> ranks) {
+        InvertedIndex.Term term = new InvertedIndex.Term(lemmaId, 1, lemma);
+        new TreeMap<>(ranks).descendingMap().forEach(term.getPostings()::add);
+        return term;
+    }
+
+    private static Map<Integer, List<Integer>> intersect(List<InvertedIndex.Term> terms) {
+        Map<Integer, List<Integer>> matches = new TreeMap<>();
+        PostingIntersector.intersect(terms, (pageId, ranks) ->
+                matches.put(pageId, Arrays.stream(ranks).boxed().toList()));
+        return matches;
+    }
+}
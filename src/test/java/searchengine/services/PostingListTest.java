@@ -0,0 +1,114 @@
+package searchengine.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PostingListTest {
+
+    @Test
+    void cursorReturnsPostingsInPageIdOrder() {
+        PostingList postings = new PostingList();
+        postings.add(5, 1);
+        postings.add(10, 2);
+        postings.add(3, 3);
+        postings.add(7, 4);
+
+        assertEquals(Map.of(3, 3, 5, 1, 7, 4, 10, 2), read(postings));
+        assertEquals(4, postings.size());
+    }
+
+    @Test
+    void addReplacesRankOfExistingPage() {
+        PostingList postings = new PostingList();
+        assertTrue(postings.add(1, 1));
+        assertTrue(postings.add(2, 1));
+        assertFalse(postings.add(1, 5));
+
+        assertEquals(Map.of(1, 5, 2, 1), read(postings));
+        assertEquals(2, postings.size());
+    }
+
+    @Test
+    void removeHidesPageUntilItIsAddedAgain() {
+        PostingList postings = new PostingList();
+        for (int pageId = 1; pageId <= 10; pageId++) {
+            postings.add(pageId, pageId);
+        }
+        assertTrue(postings.remove(4));
+        assertFalse(postings.remove(4));
+        assertFalse(postings.remove(42));
+        assertEquals(9, postings.size());
+        assertFalse(read(postings).containsKey(4));
+
+        assertTrue(postings.add(4, 40));
+        assertEquals(40, read(postings).get(4));
+        assertEquals(10, postings.size());
+    }
+
+    @Test
+    void advanceSkipsToFirstPageNotLessThanTarget() {
+        PostingList postings = new PostingList();
+        for (int pageId = 2; pageId <= 2000; pageId += 2) {
+            postings.add(pageId, 1);
+        }
+        postings.add(1001, 7);
+
+        PostingList.Cursor cursor = postings.cursor();
+        assertTrue(cursor.advance(1001));
+        assertEquals(1001, cursor.getPageId());
+        assertEquals(7, cursor.getRank());
+        assertTrue(cursor.advance(1001));
+        assertEquals(1001, cursor.getPageId());
+        assertTrue(cursor.advance(1500));
+        assertEquals(1500, cursor.getPageId());
+        assertTrue(cursor.next());
+        assertEquals(1502, cursor.getPageId());
+        assertFalse(cursor.advance(2001));
+    }
+
+    @Test
+    void matchesSortedMapUnderRandomUpdates() {
+        Random random = new Random(42);
+        PostingList postings = new PostingList();
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            int pageId = 1 + random.nextInt(3_000);
+            if (random.nextInt(4) == 0) {
+                assertEquals(expected.remove(pageId) != null, postings.remove(pageId));
+            } else {
+                int rank = 1 + random.nextInt(100);
+                assertEquals(expected.put(pageId, rank) == null, postings.add(pageId, rank));
+            }
+            if (i % 1_000 == 0) {
+                assertEquals(expected, read(postings));
+            }
+        }
+        assertEquals(expected, read(postings));
+        assertEquals(expected.size(), postings.size());
+
+        PostingList.Cursor cursor = postings.cursor();
+        for (int target = 1; target <= 3_000; target += 1 + random.nextInt(50)) {
+            Map.Entry<Integer, Integer> entry = expected.ceilingEntry(target);
+            assertEquals(entry != null, cursor.advance(target));
+            if (entry != null) {
+                assertEquals(entry.getKey(), cursor.getPageId());
+                assertEquals(entry.getValue(), cursor.getRank());
+            }
+        }
+    }
+
+    private static Map<Integer, Integer> read(PostingList postings) {
+        Map<Integer, Integer> ranks = new TreeMap<>();
+        PostingList.Cursor cursor = postings.cursor();
+        int previousPageId = 0;
+        while (cursor.next()) {
+            assertTrue(cursor.getPageId() > previousPageId);
+            previousPageId = cursor.getPageId();
+            ranks.put(cursor.getPageId(), cursor.getRank());
+        }
+        return ranks;
+    }
+}
@@ -0,0 +1,55 @@
+package searchengine.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchHitsTest {
+
+    @Test
+    void keepsTopHitsByRelevanceThenPageId() {
+        SearchHits hits = new SearchHits(3);
+        hits.add(1, new int[]{1}, List.of());
+        hits.add(2, new int[]{5}, List.of());
+        hits.add(3, new int[]{2, 2}, List.of());
+        hits.add(4, new int[]{5}, List.of());
+        hits.add(5, new int[]{3}, List.of());
+        hits.add(6, new int[]{4}, List.of());
+
+        assertEquals(List.of(2, 4, 3), pageIds(hits.getTopHits()));
+        assertEquals(6, hits.getCount());
+        assertEquals(5, hits.getMaxAbsoluteRelevance());
+    }
+
+    @Test
+    void zeroCapacityOnlyCountsHits() {
+        SearchHits hits = new SearchHits(0);
+        hits.add(1, new int[]{3}, List.of());
+        hits.add(2, new int[]{7}, List.of());
+
+        assertTrue(hits.getTopHits().isEmpty());
+        assertEquals(2, hits.getCount());
+        assertEquals(7, hits.getMaxAbsoluteRelevance());
+    }
+
+    @Test
+    void matchesFullSortOnRandomInput() {
+        Random random = new Random(3);
+        SearchHits hits = new SearchHits(25);
+        List<SearchHit> all = new ArrayList<>();
+        for (int pageId = 1; pageId <= 1_000; pageId++) {
+            int[] ranks = {random.nextInt(20), random.nextInt(20)};
+            hits.add(pageId, ranks, List.of());
+            all.add(new SearchHit(pageId, ranks[0] + ranks[1], List.of(), ranks));
+        }
+        Collections.sort(all);
+
+        assertEquals(pageIds(all.subList(0, 25)), pageIds(hits.getTopHits()));
+    }
+
+    private static List<Integer> pageIds(List<SearchHit> hits) {
+        return hits.stream().map(SearchHit::getPageId).toList();
+    }
+}
@@ -0,0 +1,27 @@
+package searchengine.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SitemapReaderTest {
+
+    @Test
+    void parsesW3cDatetimeLastmod() {
+        assertEquals(Instant.parse("2024-03-01T00:00:00Z"),
+                SitemapReader.parseLastmod("2024-03-01"));
+        assertEquals(Instant.parse("2024-03-01T10:15:30Z"),
+                SitemapReader.parseLastmod("2024-03-01T13:15:30+03:00"));
+        assertEquals(Instant.parse("2024-03-01T10:15:00Z"),
+                SitemapReader.parseLastmod("2024-03-01T10:15Z"));
+    }
+
+    @Test
+    void ignoresMalformedLastmod() {
+        assertNull(SitemapReader.parseLastmod("01.03.2024"));
+        assertNull(SitemapReader.parseLastmod("2024-03-01T10:15:30"));
+        assertNull(SitemapReader.parseLastmod(""));
+    }
+}
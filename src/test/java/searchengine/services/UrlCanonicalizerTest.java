@@ -0,0 +1,77 @@
+package searchengine.services;
+
+import org.junit.jupiter.api.Test;
+import searchengine.config.CrawlSettings;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UrlCanonicalizerTest {
+    private static final String SITE_URL = "https://example.com";
+
+    private final UrlCanonicalizer canonicalizer = new UrlCanonicalizer(new CrawlSettings());
+
+    @Test
+    void resolvesRelativeLinksAgainstBaseUrl() {
+        assertEquals("/docs/page", canonicalizer.canonicalize(SITE_URL,
+                "https://example.com/docs/index.html", "page"));
+        assertEquals("/page", canonicalizer.canonicalize(SITE_URL,
+                "https://example.com/docs/", "../page"));
+        assertEquals("/", canonicalizer.canonicalize(SITE_URL, SITE_URL, "/"));
+    }
+
+    @Test
+    void normalizesSlashesFragmentsAndPercentEncoding() {
+        assertEquals("/a/b", canonicalizer.canonicalize(SITE_URL, SITE_URL,
+                "//example.com//a/./b/#top"));
+        assertEquals("/%D0%B0", canonicalizer.canonicalizePath("/%d0%b0#x"));
+        assertEquals("/", canonicalizer.canonicalizePath(""));
+    }
+
+    @Test
+    void sortsQueryAndDropsTrackingParameters() {
+        assertEquals("/list?a=1&b=2", canonicalizer.canonicalize(SITE_URL, SITE_URL,
+                "/list?b=2&utm_source=mail&a=1&fbclid=x"));
+        assertEquals("/list", canonicalizer.canonicalizePath("/list?utm_medium=cpc"));
+    }
+
+    @Test
+    void dropsQueryWhenConfigured() {
+        CrawlSettings settings = new CrawlSettings();
+        settings.setDropQuery(true);
+        UrlCanonicalizer dropQuery = new UrlCanonicalizer(settings);
+
+        assertEquals("/list", dropQuery.canonicalizePath("/list?page=2"));
+    }
+
+    @Test
+    void rejectsOtherHostsSchemesAndSkippedFiles() {
+        assertNull(canonicalizer.canonicalize(SITE_URL, SITE_URL, "https://other.com/"));
+        assertNull(canonicalizer.canonicalize(SITE_URL, SITE_URL, "mailto:me@example.com"));
+        assertNull(canonicalizer.canonicalize(SITE_URL, SITE_URL, "/files/report.PDF"));
+        assertNull(canonicalizer.canonicalize(SITE_URL, SITE_URL, "/download/app"));
+        assertNull(canonicalizer.canonicalize(SITE_URL, SITE_URL, " "));
+        assertEquals("/about", canonicalizer.canonicalize(SITE_URL, SITE_URL,
+                "http://www.example.com/about"));
+    }
+
+    @Test
+    void checksSitemapHosts() {
+        assertTrue(canonicalizer.isSameSite(SITE_URL, "https://www.example.com/sitemap.xml"));
+        assertFalse(canonicalizer.isSameSite(SITE_URL, "https://evil.com/sitemap.xml"));
+        assertFalse(canonicalizer.isSameSite(SITE_URL, "ftp://example.com/sitemap.xml"));
+        assertFalse(canonicalizer.isSameSite(SITE_URL, "sitemap.xml"));
+    }
+
+    @Test
+    void skippedPrefixesAndExtensionsFollowSettings() {
+        CrawlSettings settings = new CrawlSettings();
+        settings.setSkippedExtensions(List.of());
+        settings.setSkippedPathPrefixes(List.of());
+        UrlCanonicalizer permissive = new UrlCanonicalizer(settings);
+
+        assertEquals("/download/report.pdf",
+                permissive.canonicalizePath("/download/report.pdf"));
+    }
+}